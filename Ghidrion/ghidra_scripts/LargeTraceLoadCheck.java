@@ -0,0 +1,116 @@
+//Generates a synthetic Morion trace of a given size and loads it with the large trace loader.
+//@category Ghidrion
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import ghidra.app.script.GhidraScript;
+import ghidra.util.exception.CancelledException;
+import model.MorionTraceFile;
+import util.yaml.TraceLoadingOptions;
+import util.yaml.YamlToTraceFileConverter;
+
+/**
+ * Reproduces the large trace check of the YAML loader: writes a synthetic
+ * trace of at least the requested size to a temporary file, loads it without
+ * the trace cache and reports the loaded counts, the load time and the heap in
+ * use afterwards. The trace loops over {@link #DISTINCT_INSTRUCTIONS}
+ * instructions, so the number of steps and of distinct instructions is known
+ * and checked after loading.
+ */
+public class LargeTraceLoadCheck extends GhidraScript {
+	private static final long BYTES_PER_MB = 1024 * 1024;
+	private static final int DISTINCT_INSTRUCTIONS = 65536;
+	private static final int MEMORY_ENTRIES = 4096;
+	private static final long BASE_ADDRESS = 0x100000L;
+
+	@Override
+	protected void run() throws Exception {
+		int sizeMB = askInt("Large trace load check", "Size of the synthetic trace in MB (e.g. 1100)");
+		File yamlFile = File.createTempFile("ghidrion-synthetic-trace", ".yaml");
+		try {
+			monitor.setMessage("Generating synthetic trace");
+			int steps = generate(yamlFile, sizeMB * BYTES_PER_MB);
+			println("Generated " + yamlFile.length() / BYTES_PER_MB + " MB with " + steps + " steps");
+
+			TraceLoadingOptions options = new TraceLoadingOptions(true, Math.max(sizeMB * 2, 1),
+					TraceLoadingOptions.DEFAULT_MAX_NESTING_DEPTH, TraceLoadingOptions.DEFAULT_MAX_ALIASES, false);
+			MorionTraceFile traceFile = new MorionTraceFile();
+			long start = System.nanoTime();
+			YamlToTraceFileConverter.toTraceFile(traceFile, yamlFile, currentProgram.getAddressFactory(), options,
+					monitor);
+			long millis = (System.nanoTime() - start) / 1_000_000;
+
+			Runtime runtime = Runtime.getRuntime();
+			System.gc();
+			long heapMB = (runtime.totalMemory() - runtime.freeMemory()) / BYTES_PER_MB;
+			println("Loaded in " + millis + " ms, " + heapMB + " MB heap in use");
+
+			int expectedInstructions = Math.min(steps, DISTINCT_INSTRUCTIONS);
+			check("steps", steps, traceFile.getInstructions().getStepCount());
+			check("distinct instructions", expectedInstructions, traceFile.getInstructions().getInstructionCount());
+			check("entry memory entries", MEMORY_ENTRIES, traceFile.getEntryMemory().size());
+			check("leave memory entries", MEMORY_ENTRIES, traceFile.getLeaveMemory().size());
+		} finally {
+			yamlFile.delete();
+		}
+	}
+
+	private void check(String name, long expected, long actual) {
+		if (expected != actual)
+			throw new IllegalStateException("Expected " + expected + " " + name + ", but loaded " + actual);
+		println("OK: " + actual + " " + name);
+	}
+
+	/**
+	 * Writes a trace with entry and leave states and as many instructions as
+	 * needed to reach @param minSize bytes.
+	 *
+	 * @return the number of written instructions
+	 */
+	private int generate(File yamlFile, long minSize) throws IOException, CancelledException {
+		long written = 0;
+		int steps = 0;
+		try (Writer writer = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(yamlFile), StandardCharsets.UTF_8), 1 << 16)) {
+			written += write(writer, "info:\n  arch: x86_64\n");
+			written += write(writer, "hooks:\n  libc:\n    printf:\n");
+			written += write(writer, "    - {entry: '0x" + Long.toHexString(BASE_ADDRESS) + "', leave: '0x"
+					+ Long.toHexString(BASE_ADDRESS + 5) + "', target: '0x1000', mode: model}\n");
+			written += write(writer, "states:\n");
+			written += writeState(writer, "entry", BASE_ADDRESS);
+			written += writeState(writer, "leave", BASE_ADDRESS + 4L * (DISTINCT_INSTRUCTIONS - 1));
+			written += write(writer, "instructions:\n");
+			while (written < minSize) {
+				if (steps % 65536 == 0)
+					monitor.checkCanceled();
+				if (steps == Integer.MAX_VALUE)
+					throw new IllegalArgumentException("Too many steps for a trace of " + minSize + " bytes");
+				long address = BASE_ADDRESS + 4L * (steps % DISTINCT_INSTRUCTIONS);
+				written += write(writer, "- ['0x" + Long.toHexString(address)
+						+ "', '48 89 e5 90', 'mov rbp, rsp', '// synthetic']\n");
+				steps++;
+			}
+		}
+		return steps;
+	}
+
+	private static long writeState(Writer writer, String name, long address) throws IOException {
+		long written = write(writer, "  " + name + ":\n    addr: '0x" + Long.toHexString(address) + "'\n");
+		written += write(writer, "    regs:\n      rax: ['0x1']\n      rbx: ['0x2', '$$']\n    mems:\n");
+		for (int i = 0; i < MEMORY_ENTRIES; i++)
+			written += write(writer, "      '0x" + Long.toHexString(0x200000L + i) + "': ['0x"
+					+ Integer.toHexString(i & 0xff) + "'" + (i % 16 == 0 ? ", '$$'" : "") + "]\n");
+		return written;
+	}
+
+	private static long write(Writer writer, String text) throws IOException {
+		writer.write(text); // ASCII only, one byte per char
+		return text.length();
+	}
+}
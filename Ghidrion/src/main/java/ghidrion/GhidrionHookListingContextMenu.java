@@ -1,5 +1,7 @@
 package ghidrion;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
@@ -29,6 +31,11 @@ import model.Hook.Mode;
  * <li>If a function is already hooked an entry that allows you to delete the
  * hook</li>
  * </ul>
+ * 
+ * Ghidra checks every action on each cursor move and popup. The hooks are
+ * therefore looked up by entry address in the {@link model.HookStore} and the
+ * external function referenced at a location is only resolved once for all
+ * actions.
  */
 public class GhidrionHookListingContextMenu extends ListingContextAction {
     private static final String LISTENING_CONTEXT_ACTION_NAME = "Ghidrion";
@@ -38,35 +45,57 @@ public class GhidrionHookListingContextMenu extends ListingContextAction {
     private static final String DELETE_ENTRY = "delete hook";
     private final GhidrionPlugin plugin;
     private final MorionInitTraceFile traceFile;
+    private final List<ListingContextAction> actions = new ArrayList<>();
+    private Program resolvedProgram; // location and program state of resolvedFunction
+    private Address resolvedAddress;
+    private long resolvedModificationNumber;
+    private Optional<Function> resolvedFunction = Optional.empty();
 
     public GhidrionHookListingContextMenu(GhidrionPlugin plugin, MorionInitTraceFile traceFile) {
         super("Ghidrion", plugin.getName());
-        plugin.addProgramOpenendListener(this::programOpened);
         this.plugin = Objects.requireNonNull(plugin);
         this.traceFile = Objects.requireNonNull(traceFile);
+        createActions();
     }
 
-    private void programOpened(Program program) {
+    /**
+     * Adds the actions to the tool once. They work on the program of the context
+     * they are invoked in, so they don't depend on the opened programs.
+     */
+    private void createActions() {
         plugin.getTool().setMenuGroup(new String[] { MENU_PATH_ADD_HOOK }, MENU_GROUP);
         for (Mode mode : Mode.values()) {
-            addAction(plugin.getTool(), MENU_PATH_ADD_HOOK, mode.getValue(), getAddHookAction(mode, program));
-            addAction(plugin.getTool(), MENU_PATH_CHANGE_HOOK, mode.getValue(), getChangeHookAction(mode, program));
+            addAction(plugin.getTool(), MENU_PATH_ADD_HOOK, mode.getValue(), getAddHookAction(mode));
+            addAction(plugin.getTool(), MENU_PATH_CHANGE_HOOK, mode.getValue(), getChangeHookAction(mode));
         }
-        addAction(plugin.getTool(), MENU_PATH_CHANGE_HOOK, DELETE_ENTRY, getDeleteHookAction(program));
+        addAction(plugin.getTool(), MENU_PATH_CHANGE_HOOK, DELETE_ENTRY, getDeleteHookAction());
     }
 
     private void addAction(Tool tool, String parent, String child, ListingContextAction action) {
         action.setPopupMenuData(new MenuData(new String[] { parent, child }, null, MENU_GROUP));
         tool.addAction(action);
+        actions.add(action);
+    }
+
+    /**
+     * Removes the actions from the tool. To be called when the plugin is
+     * disposed.
+     */
+    public void dispose() {
+        actions.forEach(action -> plugin.getTool().removeAction(action));
+        actions.clear();
+        resolvedProgram = null;
+        resolvedFunction = Optional.empty();
     }
 
-    private ListingContextAction getAddHookAction(Mode mode, Program program) {
+    private ListingContextAction getAddHookAction(Mode mode) {
         return new ListingContextAction(LISTENING_CONTEXT_ACTION_NAME, getName()) {
             @Override
             protected void actionPerformed(ListingActionContext context) {
                 Address entryAddress = context.getLocation().getAddress();
-                Address leaveAddress = program.getListing().getInstructionAfter(entryAddress).getAddress();
-                Optional<Function> function = getFunctionAtSelectedLocation(context, program);
+                Address leaveAddress = context.getProgram().getListing().getInstructionAfter(entryAddress)
+                        .getAddress();
+                Optional<Function> function = getExternalFunctionAt(context);
                 String name = function.get().getName(); // checks are done in isValidContext
                 String libraryName = JOptionPane.showInputDialog("Input library name", "libc");
                 traceFile.getHooks().add(new Hook(libraryName, name, entryAddress, leaveAddress, mode));
@@ -75,32 +104,26 @@ public class GhidrionHookListingContextMenu extends ListingContextAction {
             @Override
             protected boolean isValidContext(ListingActionContext context) {
                 Address address = context.getLocation().getAddress();
-                Optional<Function> function = getFunctionAtSelectedLocation(context, plugin.getCurrentProgram());
-                return function.isPresent()
-                        && function.get().isExternal()
-                        && traceFile
-                                .getHooks()
-                                .stream()
-                                .filter(hook -> hook.getEntryAddress().equals(address))
-                                .count() == 0;
+                return !traceFile.getHooks().isHooked(address)
+                        && getExternalFunctionAt(context).isPresent();
             }
         };
     }
 
-    private ListingContextAction getChangeHookAction(Mode mode, Program program) {
+    private ListingContextAction getChangeHookAction(Mode mode) {
         return new ListingContextAction(LISTENING_CONTEXT_ACTION_NAME, getName()) {
             @Override
             protected void actionPerformed(ListingActionContext context) {
                 Address entryAddress = context.getLocation().getAddress();
-                Address leaveAddress = program.getListing().getInstructionAfter(entryAddress).getAddress();
-                Optional<Function> function = getFunctionAtSelectedLocation(context, program);
+                Address leaveAddress = context.getProgram().getListing().getInstructionAfter(entryAddress)
+                        .getAddress();
+                Optional<Function> function = getExternalFunctionAt(context);
                 String name = function.get().getName(); // checks are done in isValidContext
                 String libraryName = traceFile
                         .getHooks()
-                        .stream()
-                        .filter(hook -> hook.getEntryAddress().equals(entryAddress))
-                        .findFirst()
-                        .get()
+                        .getHooksAt(entryAddress)
+                        .iterator()
+                        .next()
                         .getLibraryName();
                 traceFile.getHooks().update(new Hook(libraryName, name, entryAddress, leaveAddress, mode));
             }
@@ -108,46 +131,53 @@ public class GhidrionHookListingContextMenu extends ListingContextAction {
             @Override
             protected boolean isValidContext(ListingActionContext context) {
                 Address address = context.getLocation().getAddress();
-                Optional<Function> function = getFunctionAtSelectedLocation(context, plugin.getCurrentProgram());
-                return function.isPresent()
-                        && function.get().isExternal()
-                        && traceFile
-                                .getHooks()
-                                .stream()
-                                .filter(hook -> hook.getEntryAddress().equals(address))
-                                .filter(hook -> !hook.getMode().equals(mode))
-                                .count() > 0;
+                return traceFile
+                        .getHooks()
+                        .getHooksAt(address)
+                        .stream()
+                        .anyMatch(hook -> !hook.getMode().equals(mode))
+                        && getExternalFunctionAt(context).isPresent();
             }
         };
     }
 
-    private ListingContextAction getDeleteHookAction(Program program) {
+    private ListingContextAction getDeleteHookAction() {
         return new ListingContextAction(LISTENING_CONTEXT_ACTION_NAME, getName()) {
             @Override
             protected void actionPerformed(ListingActionContext context) {
                 Address address = context.getLocation().getAddress();
-                traceFile
-                        .getHooks()
-                        .stream()
-                        .filter(hook -> hook.getEntryAddress().equals(address))
-                        .forEach(hook -> traceFile.getHooks().remove(hook));
+                traceFile.getHooks().removeAll(new ArrayList<>(traceFile.getHooks().getHooksAt(address)));
             }
 
             @Override
             protected boolean isValidContext(ListingActionContext context) {
                 Address address = context.getLocation().getAddress();
-                Optional<Function> function = getFunctionAtSelectedLocation(context, plugin.getCurrentProgram());
-                return function.isPresent()
-                        && function.get().isExternal()
-                        && traceFile
-                                .getHooks()
-                                .stream()
-                                .filter(hook -> hook.getEntryAddress().equals(address))
-                                .count() > 0;
+                return traceFile.getHooks().isHooked(address)
+                        && getExternalFunctionAt(context).isPresent();
             }
         };
     }
 
+    /**
+     * The function of the last location is cached until the location or the
+     * program changes, as all actions are checked for the same location.
+     * 
+     * @return the external function referenced at the location of
+     *         @param context, if any
+     */
+    private Optional<Function> getExternalFunctionAt(ListingActionContext context) {
+        Program p = context.getProgram();
+        Address address = context.getLocation().getAddress();
+        if (p != resolvedProgram || !Objects.equals(address, resolvedAddress)
+                || p.getModificationNumber() != resolvedModificationNumber) {
+            resolvedFunction = getFunctionAtSelectedLocation(context, p).filter(Function::isExternal);
+            resolvedProgram = p;
+            resolvedAddress = address;
+            resolvedModificationNumber = p.getModificationNumber();
+        }
+        return resolvedFunction;
+    }
+
     private static Optional<Function> getFunctionAtSelectedLocation(ListingActionContext context, Program p) {
         Reference[] references = p.getReferenceManager()
                 .getReferencesFrom(context.getLocation().getAddress());
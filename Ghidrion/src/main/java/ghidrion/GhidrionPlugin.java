@@ -26,6 +26,7 @@ import ghidra.app.plugin.PluginCategoryNames;
 import ghidra.app.plugin.ProgramPlugin;
 import ghidra.app.plugin.core.colorizer.ColorizingService;
 import ghidra.app.script.GhidraState;
+import ghidra.framework.options.ToolOptions;
 import ghidra.framework.plugintool.PluginInfo;
 import ghidra.framework.plugintool.PluginTool;
 import ghidra.framework.plugintool.util.PluginStatus;
@@ -34,6 +35,7 @@ import ghidra.util.Msg;
 import model.MorionInitTraceFile;
 import ui.view.GhidrionProvider;
 import util.yaml.TraceColorizerScript;
+import util.yaml.TraceLoadingOptions;
 
 /**
  * This plugin allows a user to leverage the power of Ghidra to create and
@@ -76,11 +78,19 @@ public class GhidrionPlugin extends ProgramPlugin {
 	private DecompilerHighlightService decompilerHighlightService;
 
 	private GhidrionProvider provider;
+	private GhidrionHookListingContextMenu hookContextMenu;
 
 	private final List<Consumer<Program>> programOpenedListeners = new ArrayList<>();
 
 	private static final String PLUGIN_NAME = "Ghidrion";
 
+	// Options
+	private static final String OPTION_LARGE_TRACE_MODE = "Large Trace Mode";
+	private static final String OPTION_MAX_FILE_SIZE = "Maximum Trace File Size (MB)";
+	private static final String OPTION_MAX_NESTING_DEPTH = "Maximum YAML Nesting Depth";
+	private static final String OPTION_MAX_ALIASES = "Maximum YAML Aliases";
+	private static final String OPTION_USE_CACHE = "Cache Parsed Traces";
+
 	/**
 	 * Plugin constructor.
 	 *
@@ -98,7 +108,7 @@ public class GhidrionPlugin extends ProgramPlugin {
 		addProgramOpenendListener(p -> traceFile.clear()); // clear trace when a new program is loaded
 
 		provider = new GhidrionProvider(this, PLUGIN_NAME, owner, traceFile);
-		new GhidrionHookListingContextMenu(this, traceFile);
+		hookContextMenu = new GhidrionHookListingContextMenu(this, traceFile);
 	}
 
 	@Override
@@ -109,6 +119,43 @@ public class GhidrionPlugin extends ProgramPlugin {
 		colorizingService = getService(ColorizingService.class, this, provider.getComponent());
 		decompilerHighlightService = getService(DecompilerHighlightService.class, this,
 				provider.getComponent());
+
+		registerOptions();
+	}
+
+	@Override
+	protected void dispose() {
+		hookContextMenu.dispose();
+		provider.disposeControllers();
+		super.dispose();
+	}
+
+	private void registerOptions() {
+		ToolOptions options = tool.getOptions(PLUGIN_NAME);
+		options.registerOption(OPTION_LARGE_TRACE_MODE, TraceLoadingOptions.DEFAULT_LARGE_TRACE_MODE, null,
+				"Replaces the YAML parser's 3 MB code point limit by the maximum trace file size");
+		options.registerOption(OPTION_MAX_FILE_SIZE, TraceLoadingOptions.DEFAULT_MAX_FILE_SIZE_MB, null,
+				"Maximum size of a trace file that can be loaded in large trace mode");
+		options.registerOption(OPTION_MAX_NESTING_DEPTH, TraceLoadingOptions.DEFAULT_MAX_NESTING_DEPTH, null,
+				"Maximum depth of nested collections in a trace file");
+		options.registerOption(OPTION_MAX_ALIASES, TraceLoadingOptions.DEFAULT_MAX_ALIASES, null,
+				"Maximum number of aliases referring to collections in a trace file");
+		options.registerOption(OPTION_USE_CACHE, TraceLoadingOptions.DEFAULT_USE_CACHE, null,
+				"Stores a binary copy of each parsed trace next to the trace file, to reopen it faster");
+	}
+
+	/**
+	 * @return limits to use when loading trace files, as currently configured in
+	 *         the tool options.
+	 */
+	public TraceLoadingOptions getTraceLoadingOptions() {
+		ToolOptions options = tool.getOptions(PLUGIN_NAME);
+		return new TraceLoadingOptions(
+				options.getBoolean(OPTION_LARGE_TRACE_MODE, TraceLoadingOptions.DEFAULT_LARGE_TRACE_MODE),
+				options.getInt(OPTION_MAX_FILE_SIZE, TraceLoadingOptions.DEFAULT_MAX_FILE_SIZE_MB),
+				options.getInt(OPTION_MAX_NESTING_DEPTH, TraceLoadingOptions.DEFAULT_MAX_NESTING_DEPTH),
+				options.getInt(OPTION_MAX_ALIASES, TraceLoadingOptions.DEFAULT_MAX_ALIASES),
+				options.getBoolean(OPTION_USE_CACHE, TraceLoadingOptions.DEFAULT_USE_CACHE));
 	}
 
 	@Override
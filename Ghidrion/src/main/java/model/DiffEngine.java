@@ -0,0 +1,141 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculates the {@link DiffEntry}s between an entry and a leave state.
+ *
+ * Both states are joined by name in a single pass using a hash map, so a state
+ * with n entries is diffed in O(n) instead of searching the other state for
+ * every name. Memory states are diffed range by range with
+ * {@link #diffRanges(MemoryStore, MemoryStore)} instead.
+ */
+public class DiffEngine {
+	private DiffEngine() {
+	}
+
+	/**
+	 * @param entry state on entry
+	 * @param leave state on leave
+	 * @return one {@link DiffEntry} per name present in either state, in no
+	 *         particular order
+	 */
+	public static List<DiffEntry> diff(Collection<MemoryEntry> entry, Collection<MemoryEntry> leave) {
+		Map<String, MemoryEntry> leaveByName = new HashMap<>(leave.size() * 2);
+		for (MemoryEntry l : leave)
+			leaveByName.put(l.getName(), l);
+		List<DiffEntry> diff = new ArrayList<>(Math.max(entry.size(), leave.size()));
+		for (MemoryEntry e : entry)
+			diff.add(diff(e.getName(), e, leaveByName.remove(e.getName())));
+		for (MemoryEntry l : leaveByName.values())
+			diff.add(diff(l.getName(), null, l));
+		return diff;
+	}
+
+	/**
+	 * Merges both stores run by run into ranges of adjacent addresses with the
+	 * same status. Only bytes of overlapping runs that aren't both filled are
+	 * compared one by one, no entries are created.
+	 *
+	 * @param entry memory on entry
+	 * @param leave memory on leave
+	 * @return the {@link DiffRange}s in address order, adjacent ranges differ in
+	 *         status or aren't contiguous
+	 */
+	public static List<DiffRange> diffRanges(MemoryStore entry, MemoryStore leave) {
+		List<DiffRange> ranges = new ArrayList<>();
+		Iterator<MemoryStore.Run> entryRuns = entry.getRuns().iterator();
+		Iterator<MemoryStore.Run> leaveRuns = leave.getRuns().iterator();
+		MemoryStore.Run e = next(entryRuns);
+		MemoryStore.Run l = next(leaveRuns);
+		long address = Long.MIN_VALUE;
+		while (e != null || l != null) {
+			if (e != null && e.getEnd() < address) {
+				e = next(entryRuns);
+				continue;
+			}
+			if (l != null && l.getEnd() < address) {
+				l = next(leaveRuns);
+				continue;
+			}
+			boolean inEntry = e != null && e.getStart() <= address;
+			boolean inLeave = l != null && l.getStart() <= address;
+			if (!inEntry && !inLeave) {
+				address = Math.min(e == null ? Long.MAX_VALUE : e.getStart(), l == null ? Long.MAX_VALUE : l.getStart());
+				continue;
+			}
+			long end = Math.min(segmentEnd(e, inEntry), segmentEnd(l, inLeave));
+			if (inEntry && inLeave) {
+				int status = (e.isSymbolic() ? DiffRange.ENTRY_SYMBOLIC : 0)
+						| (l.isSymbolic() ? DiffRange.LEAVE_SYMBOLIC : 0);
+				if (e.isFilled() && l.isFilled())
+					add(ranges, address, end, e.getValue(address) == l.getValue(address) ? status
+							: status | DiffRange.CHANGED);
+				else
+					for (long a = address; a <= end && a >= address; a++)
+						add(ranges, a, a, e.getValue(a) == l.getValue(a) ? status : status | DiffRange.CHANGED);
+			} else if (inEntry) {
+				add(ranges, address, end,
+						DiffRange.MISSING_ON_LEAVE | (e.isSymbolic() ? DiffRange.ENTRY_SYMBOLIC : 0));
+			} else {
+				add(ranges, address, end,
+						DiffRange.MISSING_ON_ENTRY | (l.isSymbolic() ? DiffRange.LEAVE_SYMBOLIC : 0));
+			}
+			if (end == Long.MAX_VALUE)
+				break;
+			address = end + 1;
+		}
+		return ranges;
+	}
+
+	/**
+	 * @return the last address of the segment starting in or before @param run
+	 */
+	private static long segmentEnd(MemoryStore.Run run, boolean inRun) {
+		if (run == null)
+			return Long.MAX_VALUE;
+		return inRun ? run.getEnd() : run.getStart() - 1;
+	}
+
+	private static void add(List<DiffRange> ranges, long start, long end, int status) {
+		if (ranges.isEmpty() || !ranges.get(ranges.size() - 1).extend(start, end, status))
+			ranges.add(new DiffRange(start, end, status));
+	}
+
+	private static MemoryStore.Run next(Iterator<MemoryStore.Run> runs) {
+		return runs.hasNext() ? runs.next() : null;
+	}
+
+	/**
+	 * @param name  of the diffed entries
+	 * @param entry entry on entry or {@code null} if not present
+	 * @param leave entry on leave or {@code null} if not present
+	 * @return the diff of @param entry and @param leave, or {@code null} if both
+	 *         are missing
+	 */
+	public static DiffEntry diff(String name, MemoryEntry entry, MemoryEntry leave) {
+		if (entry == null && leave == null)
+			return null;
+		return new DiffEntry(name,
+				entry == null ? null : entry.getValue(), entry != null && entry.isSymbolic(),
+				leave == null ? null : leave.getValue(), leave != null && leave.isSymbolic());
+	}
+
+	/**
+	 * @param state to search
+	 * @param name  to look up
+	 * @return the entry of @param state with @param name or {@code null} if it is
+	 *         not present
+	 */
+	public static MemoryEntry find(Collection<MemoryEntry> state, String name) {
+		for (MemoryEntry e : state)
+			if (e.getName().equals(name))
+				return e;
+		return null;
+	}
+}
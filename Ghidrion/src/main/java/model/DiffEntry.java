@@ -21,12 +21,26 @@ public class DiffEntry implements Comparable<DiffEntry> {
      * @param leave entry on leave
      */
     public DiffEntry(String name, Optional<MemoryEntry> entry, Optional<MemoryEntry> leave) {
+        this(name,
+                entry.map(MemoryEntry::getValue).orElse(null), entry.isPresent() && entry.get().isSymbolic(),
+                leave.map(MemoryEntry::getValue).orElse(null), leave.isPresent() && leave.get().isSymbolic());
+    }
+
+    /**
+     * @param name            key
+     * @param entryValue      value on entry or {@code null} if not present
+     * @param isEntrySymbolic whether the value on entry is symbolic
+     * @param leaveValue      value on leave or {@code null} if not present
+     * @param isLeaveSymbolic whether the value on leave is symbolic
+     */
+    public DiffEntry(String name, String entryValue, boolean isEntrySymbolic, String leaveValue,
+            boolean isLeaveSymbolic) {
         this.name = Objects.requireNonNull(name);
-        this.isEntrySymbolic = entry.isPresent() && entry.get().isSymbolic();
-        this.isLeaveSymbolic = leave.isPresent() && leave.get().isSymbolic();
-        this.isError = entry.isEmpty() || leave.isEmpty();
-        this.entryValue = entry.isPresent() ? entry.get().getValue() : "";
-        this.leaveValue = leave.isPresent() ? leave.get().getValue() : "";
+        this.isEntrySymbolic = entryValue != null && isEntrySymbolic;
+        this.isLeaveSymbolic = leaveValue != null && isLeaveSymbolic;
+        this.isError = entryValue == null || leaveValue == null;
+        this.entryValue = entryValue != null ? entryValue : "";
+        this.leaveValue = leaveValue != null ? leaveValue : "";
         this.isDiff = !this.entryValue.equals(this.leaveValue);
     }
 
@@ -0,0 +1,80 @@
+package model;
+
+/**
+ * Adjacent memory addresses that have the same diff status, i.e. are equally
+ * changed, missing and symbolic on entry and leave.
+ */
+public class DiffRange {
+	public static final int CHANGED = 1;
+	public static final int MISSING_ON_ENTRY = 2;
+	public static final int MISSING_ON_LEAVE = 4;
+	public static final int ENTRY_SYMBOLIC = 8;
+	public static final int LEAVE_SYMBOLIC = 16;
+
+	private final long start;
+	private long end;
+	private final int status;
+
+	/**
+	 * @param start  first address of the range
+	 * @param end    last address of the range (inclusive)
+	 * @param status combination of the status flags of this class
+	 */
+	public DiffRange(long start, long end, int status) {
+		this.start = start;
+		this.end = end;
+		this.status = status;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public long getEnd() {
+		return end;
+	}
+
+	public long getLength() {
+		return end - start + 1;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * @return {@code true} if the bytes are present on entry and leave, but
+	 *         differ
+	 */
+	public boolean isChanged() {
+		return (status & CHANGED) != 0;
+	}
+
+	/**
+	 * @return {@code true} if the bytes are only present on entry or on leave
+	 */
+	public boolean isMissing() {
+		return (status & (MISSING_ON_ENTRY | MISSING_ON_LEAVE)) != 0;
+	}
+
+	public boolean isEntrySymbolic() {
+		return (status & ENTRY_SYMBOLIC) != 0;
+	}
+
+	public boolean isLeaveSymbolic() {
+		return (status & LEAVE_SYMBOLIC) != 0;
+	}
+
+	/**
+	 * Extends this range to @param address if it directly follows the range and
+	 * has the same @param status.
+	 *
+	 * @return {@code true} if the range has been extended
+	 */
+	boolean extend(long address, long newEnd, int status) {
+		if (this.status != status || end + 1 != address)
+			return false;
+		end = newEnd;
+		return true;
+	}
+}
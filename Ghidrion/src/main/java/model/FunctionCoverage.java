@@ -0,0 +1,373 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.RecursiveTask;
+
+import ghidra.program.model.address.Address;
+import ghidra.program.model.address.AddressRange;
+import ghidra.program.model.address.AddressSetView;
+import ghidra.program.model.address.AddressSpace;
+import ghidra.program.model.block.BasicBlockModel;
+import ghidra.program.model.block.CodeBlock;
+import ghidra.program.model.block.CodeBlockIterator;
+import ghidra.program.model.listing.Function;
+import ghidra.program.model.listing.FunctionManager;
+import ghidra.program.model.listing.Instruction;
+import ghidra.program.model.listing.Program;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * How much of a function has been executed by a trace: the number of its
+ * instructions and basic blocks that have been traced.
+ */
+public class FunctionCoverage implements Comparable<FunctionCoverage> {
+	private final String name;
+	private final Address entryAddress;
+	private final int coveredInstructions;
+	private final int totalInstructions;
+	private final int coveredBlocks;
+	private final int totalBlocks;
+
+	/**
+	 * @param name                of the function
+	 * @param entryAddress        of the function
+	 * @param coveredInstructions number of traced instructions of the function
+	 * @param totalInstructions   number of instructions of the function
+	 * @param coveredBlocks       number of basic blocks of the function
+	 *                            containing a traced instruction
+	 * @param totalBlocks         number of basic blocks of the function
+	 */
+	public FunctionCoverage(String name, Address entryAddress, int coveredInstructions, int totalInstructions,
+			int coveredBlocks, int totalBlocks) {
+		this.name = Objects.requireNonNull(name);
+		this.entryAddress = Objects.requireNonNull(entryAddress);
+		this.coveredInstructions = coveredInstructions;
+		this.totalInstructions = totalInstructions;
+		this.coveredBlocks = coveredBlocks;
+		this.totalBlocks = totalBlocks;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public Address getEntryAddress() {
+		return entryAddress;
+	}
+
+	public int getCoveredInstructions() {
+		return coveredInstructions;
+	}
+
+	public int getTotalInstructions() {
+		return totalInstructions;
+	}
+
+	public int getCoveredBlocks() {
+		return coveredBlocks;
+	}
+
+	public int getTotalBlocks() {
+		return totalBlocks;
+	}
+
+	/**
+	 * @return the percentage of traced instructions, between 0 and 100
+	 */
+	public double getInstructionCoverage() {
+		return totalInstructions == 0 ? 0 : 100.0 * coveredInstructions / totalInstructions;
+	}
+
+	/**
+	 * @return the percentage of basic blocks containing a traced instruction,
+	 *         between 0 and 100
+	 */
+	public double getBlockCoverage() {
+		return totalBlocks == 0 ? 0 : 100.0 * coveredBlocks / totalBlocks;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this)
+			return true;
+		if (obj == null || !obj.getClass().equals(this.getClass()))
+			return false;
+		FunctionCoverage o = (FunctionCoverage) obj;
+		return o.getEntryAddress().equals(getEntryAddress());
+	}
+
+	@Override
+	public int hashCode() {
+		return entryAddress.hashCode();
+	}
+
+	@Override
+	public int compareTo(FunctionCoverage o) {
+		return entryAddress.compareTo(o.getEntryAddress());
+	}
+
+	/**
+	 * Computes the coverage of all functions containing a traced instruction in
+	 * parallel on the {@link ProgramAnalysisPool}. The distinct traced offsets
+	 * are sorted, so the containing function only has to be looked up once per
+	 * function instead of once per address, and an {@link Address} is only
+	 * created for these lookups. Then each function's instructions and basic
+	 * blocks are counted and matched with its traced offsets. Traced addresses
+	 * outside of functions are not reported.
+	 *
+	 * @param program containing the traced instructions
+	 * @param space   of the traced instructions
+	 * @param offsets of the distinct traced instructions, see
+	 *                {@link TraceStream#getInstructionOffsets()}
+	 * @param monitor to report progress to and check for cancellation
+	 * @return the coverage of every function touched by the traced instructions
+	 * @throws CancelledException if @param monitor has been cancelled
+	 */
+	public static List<FunctionCoverage> getFunctionCoverages(Program program, AddressSpace space, long[] offsets,
+			TaskMonitor monitor) throws CancelledException {
+		if (offsets.length == 0)
+			return new ArrayList<>();
+		long[] keys = new long[offsets.length];
+		for (int i = 0; i < offsets.length; i++)
+			keys[i] = toKey(offsets[i]);
+		Arrays.sort(keys); // on the calling task thread, not the common pool
+
+		monitor.setMessage("Mapping traced addresses to functions");
+		monitor.initialize(keys.length);
+		Map<Address, TracedOffsets> tracedOffsets = ProgramAnalysisPool.get()
+				.invoke(new AddressMapping(program, space, keys, 0, keys.length, monitor));
+		monitor.checkCanceled();
+
+		monitor.setMessage("Counting covered instructions and basic blocks");
+		List<Address> entryAddresses = new ArrayList<>(tracedOffsets.keySet());
+		monitor.initialize(entryAddresses.size());
+		List<FunctionCoverage> res = ProgramAnalysisPool.get()
+				.invoke(new CoverageCount(program, space, entryAddresses, tracedOffsets, 0, entryAddresses.size(),
+						monitor));
+		monitor.checkCanceled();
+		return res;
+	}
+
+	/**
+	 * @return @param offset with the sign bit flipped, so that the signed order
+	 *         of the keys is the unsigned order of the offsets, as used by
+	 *         {@link Address#compareTo(Address)}
+	 */
+	private static long toKey(long offset) {
+		return offset ^ Long.MIN_VALUE;
+	}
+
+	private static long toOffset(long key) {
+		return key ^ Long.MIN_VALUE;
+	}
+
+	/**
+	 * Growable array of the sorted keys (see {@link #toKey(long)}) of the traced
+	 * offsets of a function.
+	 */
+	private static class TracedOffsets {
+		private long[] keys = new long[8];
+		private int size = 0;
+
+		private void add(long key) {
+			if (size == keys.length)
+				keys = Arrays.copyOf(keys, size * 2);
+			keys[size++] = key;
+		}
+
+		/**
+		 * Appends @param other, whose keys have to be larger than the ones of
+		 * this.
+		 */
+		private void addAll(TracedOffsets other) {
+			if (size + other.size > keys.length)
+				keys = Arrays.copyOf(keys, Math.max(size * 2, size + other.size));
+			System.arraycopy(other.keys, 0, keys, size, other.size);
+			size += other.size;
+		}
+
+		/**
+		 * @return {@code true} if one of the offsets is between the offsets of
+		 *         @param min and @param max (inclusive)
+		 */
+		private boolean contains(long min, long max) {
+			int i = Arrays.binarySearch(keys, 0, size, toKey(min));
+			if (i >= 0)
+				return true;
+			int insertion = -i - 1;
+			return insertion < size && keys[insertion] <= toKey(max);
+		}
+	}
+
+	/**
+	 * Groups a part of the sorted traced offsets by the entry address of their
+	 * containing function, splitting it further while it is large.
+	 */
+	private static class AddressMapping extends RecursiveTask<Map<Address, TracedOffsets>> {
+		private static final int MAX_SEQUENTIAL_ADDRESSES = 4096;
+
+		private final Program program;
+		private final AddressSpace space;
+		private final long[] keys;
+		private final int from;
+		private final int to;
+		private final TaskMonitor monitor;
+
+		private AddressMapping(Program program, AddressSpace space, long[] keys, int from, int to,
+				TaskMonitor monitor) {
+			this.program = program;
+			this.space = space;
+			this.keys = keys;
+			this.from = from;
+			this.to = to;
+			this.monitor = monitor;
+		}
+
+		@Override
+		protected Map<Address, TracedOffsets> compute() {
+			if (to - from > MAX_SEQUENTIAL_ADDRESSES) {
+				int middle = (from + to) >>> 1;
+				AddressMapping left = new AddressMapping(program, space, keys, from, middle, monitor);
+				left.fork();
+				Map<Address, TracedOffsets> right = new AddressMapping(program, space, keys, middle, to, monitor)
+						.compute();
+				Map<Address, TracedOffsets> res = left.join();
+				right.forEach((entryAddress, functionOffsets) -> res.merge(entryAddress, functionOffsets,
+						(a, b) -> {
+							a.addAll(b); // keeps the offsets sorted
+							return a;
+						}));
+				return res;
+			}
+
+			FunctionManager functionManager = program.getFunctionManager();
+			Map<Address, TracedOffsets> res = new HashMap<>();
+			TracedOffsets functionOffsets = null;
+			AddressSetView body = null;
+			long rangeEnd = 0; // key of the end of the body range containing the previous offset
+			boolean inRange = false;
+			for (int i = from; i < to && !monitor.isCancelled(); i++) {
+				long key = keys[i];
+				if (!inRange || key > rangeEnd) { // an Address is only created when leaving the current range
+					Address address = space.getAddress(toOffset(key));
+					AddressRange range = body == null ? null : body.getRangeContaining(address);
+					if (range == null) {
+						Function function = functionManager.getFunctionContaining(address);
+						body = function == null ? null : function.getBody();
+						functionOffsets = function == null ? null
+								: res.computeIfAbsent(function.getEntryPoint(), a -> new TracedOffsets());
+						range = body == null ? null : body.getRangeContaining(address);
+					}
+					inRange = range != null && space.equals(range.getMaxAddress().getAddressSpace());
+					rangeEnd = inRange ? toKey(range.getMaxAddress().getOffset()) : 0;
+				}
+				if (functionOffsets != null)
+					functionOffsets.add(key);
+			}
+			monitor.incrementProgress(to - from);
+			return res;
+		}
+	}
+
+	/**
+	 * Counts the instructions and basic blocks of a part of the functions,
+	 * splitting it further while it is large.
+	 */
+	private static class CoverageCount extends RecursiveTask<List<FunctionCoverage>> {
+		private static final int MAX_SEQUENTIAL_FUNCTIONS = 16;
+
+		private final Program program;
+		private final AddressSpace space;
+		private final List<Address> entryAddresses;
+		private final Map<Address, TracedOffsets> tracedOffsets;
+		private final int from;
+		private final int to;
+		private final TaskMonitor monitor;
+
+		private CoverageCount(Program program, AddressSpace space, List<Address> entryAddresses,
+				Map<Address, TracedOffsets> tracedOffsets, int from, int to, TaskMonitor monitor) {
+			this.program = program;
+			this.space = space;
+			this.entryAddresses = entryAddresses;
+			this.tracedOffsets = tracedOffsets;
+			this.from = from;
+			this.to = to;
+			this.monitor = monitor;
+		}
+
+		@Override
+		protected List<FunctionCoverage> compute() {
+			if (to - from > MAX_SEQUENTIAL_FUNCTIONS) {
+				int middle = (from + to) >>> 1;
+				CoverageCount left = new CoverageCount(program, space, entryAddresses, tracedOffsets, from, middle,
+						monitor);
+				left.fork();
+				List<FunctionCoverage> res = new CoverageCount(program, space, entryAddresses, tracedOffsets, middle,
+						to, monitor).compute();
+				res.addAll(left.join());
+				return res;
+			}
+
+			FunctionManager functionManager = program.getFunctionManager();
+			BasicBlockModel blockModel = new BasicBlockModel(program); // not shared between threads
+			List<FunctionCoverage> res = new ArrayList<>();
+			try {
+				for (int i = from; i < to && !monitor.isCancelled(); i++) {
+					Address entryAddress = entryAddresses.get(i);
+					Function function = functionManager.getFunctionAt(entryAddress);
+					if (function != null) // removed in the meantime
+						res.add(count(function, tracedOffsets.get(entryAddress), blockModel));
+					monitor.incrementProgress(1);
+				}
+			} catch (CancelledException e) {
+				// the caller checks the monitor
+			}
+			return res;
+		}
+
+		/**
+		 * @param traced offsets of @param function
+		 */
+		private FunctionCoverage count(Function function, TracedOffsets traced, BasicBlockModel blockModel)
+				throws CancelledException {
+			AddressSetView body = function.getBody();
+
+			int totalInstructions = 0;
+			int coveredInstructions = 0;
+			for (Instruction instruction : program.getListing().getInstructions(body, true)) {
+				totalInstructions++;
+				if (contains(traced, instruction.getAddress(), instruction.getAddress()))
+					coveredInstructions++;
+			}
+
+			int totalBlocks = 0;
+			int coveredBlocks = 0;
+			CodeBlockIterator blocks = blockModel.getCodeBlocksContaining(body, monitor);
+			while (blocks.hasNext()) {
+				CodeBlock block = blocks.next();
+				totalBlocks++;
+				for (AddressRange range : block)
+					if (contains(traced, range.getMinAddress(), range.getMaxAddress())) {
+						coveredBlocks++;
+						break;
+					}
+			}
+			return new FunctionCoverage(function.getName(), function.getEntryPoint(), coveredInstructions,
+					totalInstructions, coveredBlocks, totalBlocks);
+		}
+
+		/**
+		 * @return {@code true} if one of the @param traced offsets is between
+		 *         @param min and @param max (inclusive) of the traced space
+		 */
+		private boolean contains(TracedOffsets traced, Address min, Address max) {
+			return space.equals(min.getAddressSpace()) && traced.contains(min.getOffset(), max.getOffset());
+		}
+	}
+}
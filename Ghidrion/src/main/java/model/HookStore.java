@@ -0,0 +1,42 @@
+package model;
+
+import java.util.Set;
+
+import ghidra.program.model.address.Address;
+import util.collection.IndexedSet;
+import util.observable.ObservableSet;
+
+/**
+ * {@link util.observable.Observable} set of {@link Hook}s that are also indexed
+ * by their entry address. The index is updated together with the set, so the
+ * hooks at an address can be looked up in O(1) at any time, e.g. in context
+ * menus or while observers are notified.
+ */
+public class HookStore extends ObservableSet<Hook> {
+	private final IndexedSet<Address, Hook> hooks;
+
+	public HookStore() {
+		this(new IndexedSet<>(Hook::getEntryAddress, false));
+	}
+
+	private HookStore(IndexedSet<Address, Hook> hooks) {
+		super(hooks);
+		this.hooks = hooks;
+	}
+
+	/**
+	 * @param entryAddress to look up
+	 * @return the hooks with @param entryAddress, which must not be modified
+	 */
+	public Set<Hook> getHooksAt(Address entryAddress) {
+		return hooks.get(entryAddress);
+	}
+
+	/**
+	 * @param entryAddress to look up
+	 * @return {@code true} if there is at least one hook with @param entryAddress
+	 */
+	public boolean isHooked(Address entryAddress) {
+		return hooks.containsKey(entryAddress);
+	}
+}
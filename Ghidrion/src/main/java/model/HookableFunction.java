@@ -1,17 +1,24 @@
 package model;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.RecursiveTask;
 
 import ghidra.program.model.address.Address;
 import ghidra.program.model.listing.Function;
 import ghidra.program.model.listing.FunctionManager;
+import ghidra.program.model.listing.Instruction;
+import ghidra.program.model.listing.Listing;
 import ghidra.program.model.listing.Program;
 import ghidra.program.model.mem.Memory;
+import ghidra.program.model.mem.MemoryBlock;
 import ghidra.program.model.symbol.Reference;
 import ghidra.program.model.symbol.ReferenceManager;
-import ghidra.program.model.listing.Instruction;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
 
 /**
  * Used when filtering hooks to add to the init trace file.
@@ -32,7 +39,8 @@ public class HookableFunction implements Comparable<HookableFunction> {
 		this.name = Objects.requireNonNull(name);
 		this.entryAddress = Objects.requireNonNull(entryAddress);
 		this.leaveAddress = Objects.requireNonNull(leaveAddress);
-		this.blockName = m.getBlock(this.entryAddress) == null ? "undefined" : m.getBlock(this.entryAddress).getName();
+		MemoryBlock block = m.getBlock(this.entryAddress);
+		this.blockName = block == null ? "undefined" : block.getName();
 	}
 
 	public String getName() {
@@ -78,28 +86,112 @@ public class HookableFunction implements Comparable<HookableFunction> {
 	}
 
 	/**
+	 * Discovers the functions in parallel: the external functions are split
+	 * across the {@link ProgramAnalysisPool}, each part looks up the call
+	 * sites of its functions' thunks.
+	 *
 	 * @param program to gather functions from
+	 * @param monitor to report progress to and check for cancellation
 	 * @return all hookable functions in the provided program that are linked to an
 	 *         external function.
+	 * @throws CancelledException if @param monitor has been cancelled
 	 */
-	public static Set<HookableFunction> getHookableFunctions(Program program) {
+	public static Set<HookableFunction> getHookableFunctions(Program program, TaskMonitor monitor)
+			throws CancelledException {
+		List<Function> externalFunctions = new ArrayList<>();
+		for (Function externalFunction : program.getFunctionManager().getExternalFunctions()) {
+			monitor.checkCanceled();
+			externalFunctions.add(externalFunction);
+		}
+		monitor.initialize(externalFunctions.size());
+		List<HookableFunction> res = ProgramAnalysisPool.get()
+				.invoke(new Discovery(program, externalFunctions, 0, externalFunctions.size(), monitor));
+		monitor.checkCanceled();
+		return new HashSet<>(res);
+	}
+
+	/**
+	 * Looks up the hookable functions called at a single call site, as
+	 * {@link #getHookableFunctions(Program, TaskMonitor)} would discover them,
+	 * without going through all external functions.
+	 *
+	 * @param program  containing @param callSite
+	 * @param callSite address that may call external functions through thunks
+	 * @return the hookable functions with @param callSite as entry address
+	 */
+	public static List<HookableFunction> getHookableFunctionsAt(Program program, Address callSite) {
+		List<HookableFunction> res = new ArrayList<>();
+		Instruction instruction = program.getListing().getInstructionAfter(callSite);
+		if (instruction == null) // if there is no next instruction, hooking doesn't work
+			return res;
 		FunctionManager functionManager = program.getFunctionManager();
-		ReferenceManager referenceManager = program.getReferenceManager();
-		Memory memory = program.getMemory();
-		Set<HookableFunction> res = new HashSet<>();
-
-		for (Function externalFunction : functionManager.getExternalFunctions())
-			for (Address thunkAddress : externalFunction.getFunctionThunkAddresses(true))
-				for (Reference reference : referenceManager.getReferencesTo(thunkAddress))
-					if (!reference.isEntryPointReference()) {
-						String name = externalFunction.getName();
-						Address entryAddress = reference.getFromAddress();
-						Instruction instruction = program.getListing().getInstructionAfter(entryAddress);
-						if (instruction == null) // if there is no next instruction, hooking doesn't work
-							continue;
-						Address leaveAddress = instruction.getAddress();
-						res.add(new HookableFunction(name, entryAddress, leaveAddress, memory));
-					}
+		for (Reference reference : program.getReferenceManager().getReferencesFrom(callSite)) {
+			if (reference.isEntryPointReference())
+				continue;
+			Function thunk = functionManager.getFunctionAt(reference.getToAddress());
+			if (thunk == null || !thunk.isThunk())
+				continue;
+			Function externalFunction = thunk.getThunkedFunction(true);
+			if (externalFunction != null && externalFunction.isExternal())
+				res.add(new HookableFunction(externalFunction.getName(), callSite, instruction.getAddress(),
+						program.getMemory()));
+		}
 		return res;
 	}
+
+	/**
+	 * Discovers the hookable functions of a part of the external functions,
+	 * splitting it further while it is large.
+	 */
+	private static class Discovery extends RecursiveTask<List<HookableFunction>> {
+		private static final int MAX_SEQUENTIAL_FUNCTIONS = 16;
+
+		private final Program program;
+		private final List<Function> externalFunctions;
+		private final int from;
+		private final int to;
+		private final TaskMonitor monitor;
+
+		private Discovery(Program program, List<Function> externalFunctions, int from, int to, TaskMonitor monitor) {
+			this.program = program;
+			this.externalFunctions = externalFunctions;
+			this.from = from;
+			this.to = to;
+			this.monitor = monitor;
+		}
+
+		@Override
+		protected List<HookableFunction> compute() {
+			if (to - from > MAX_SEQUENTIAL_FUNCTIONS) {
+				int middle = (from + to) >>> 1;
+				Discovery left = new Discovery(program, externalFunctions, from, middle, monitor);
+				left.fork();
+				List<HookableFunction> res = new Discovery(program, externalFunctions, middle, to, monitor).compute();
+				res.addAll(left.join());
+				return res;
+			}
+
+			ReferenceManager referenceManager = program.getReferenceManager();
+			Listing listing = program.getListing();
+			Memory memory = program.getMemory();
+			List<HookableFunction> res = new ArrayList<>();
+			for (int i = from; i < to && !monitor.isCancelled(); i++) {
+				Function externalFunction = externalFunctions.get(i);
+				String name = externalFunction.getName();
+				Address[] thunkAddresses = externalFunction.getFunctionThunkAddresses(true);
+				for (Address thunkAddress : thunkAddresses == null ? new Address[0] : thunkAddresses)
+					for (Reference reference : referenceManager.getReferencesTo(thunkAddress))
+						if (!reference.isEntryPointReference()) {
+							Address entryAddress = reference.getFromAddress();
+							Instruction instruction = listing.getInstructionAfter(entryAddress);
+							if (instruction == null) // if there is no next instruction, hooking doesn't work
+								continue;
+							Address leaveAddress = instruction.getAddress();
+							res.add(new HookableFunction(name, entryAddress, leaveAddress, memory));
+						}
+				monitor.incrementProgress(1);
+			}
+			return res;
+		}
+	}
 }
@@ -0,0 +1,101 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+
+import ghidra.program.model.address.Address;
+import util.collection.IndexedSet;
+import util.observable.ObservableSet;
+
+/**
+ * {@link util.observable.Observable} set of the {@link HookableFunction}s of a
+ * program, indexed by their entry address, which is the call site of the
+ * external function. The entry addresses are kept sorted, so the call sites in
+ * a range of code can be looked up when it changes.
+ */
+public class HookableFunctionStore extends ObservableSet<HookableFunction> {
+	private final IndexedSet<Address, HookableFunction> functions;
+
+	public HookableFunctionStore() {
+		this(new IndexedSet<>(HookableFunction::getEntryAddress, true));
+	}
+
+	private HookableFunctionStore(IndexedSet<Address, HookableFunction> functions) {
+		super(functions);
+		this.functions = functions;
+	}
+
+	/**
+	 * @param entryAddress to look up
+	 * @return the functions with @param entryAddress, which must not be modified
+	 */
+	public Set<HookableFunction> getFunctionsAt(Address entryAddress) {
+		return functions.get(entryAddress);
+	}
+
+	/**
+	 * @param from first address
+	 * @param to   last address (inclusive)
+	 * @return the entry addresses of functions from @param from to @param to in
+	 *         order
+	 */
+	public NavigableSet<Address> getEntryAddresses(Address from, Address to) {
+		return functions.getKeys(from, to);
+	}
+
+	/**
+	 * @param address to look up
+	 * @return the greatest entry address of a function before @param address, or
+	 *         {@code null} if there is none
+	 */
+	public Address getEntryAddressBefore(Address address) {
+		return functions.lowerKey(address);
+	}
+
+	/**
+	 * Replaces the content with @param newContent, but only removes and adds the
+	 * functions that differ, so observers are notified of the difference
+	 * instead of {@link util.observable.CollectionChange#replacedAll()}.
+	 */
+	public void updateContent(Collection<HookableFunction> newContent) {
+		update(functions, newContent);
+	}
+
+	/**
+	 * Replaces the functions at @param entryAddresses with @param newFunctions,
+	 * which must have one of them as entry address, in time proportional to the
+	 * number of functions at these addresses.
+	 */
+	public void updateFunctionsAt(Collection<Address> entryAddresses, Collection<HookableFunction> newFunctions) {
+		List<HookableFunction> oldFunctions = new ArrayList<>();
+		entryAddresses.forEach(address -> oldFunctions.addAll(getFunctionsAt(address)));
+		update(oldFunctions, newFunctions);
+	}
+
+	/**
+	 * Removes the functions of @param oldFunctions missing in @param
+	 * newFunctions and adds the new ones in one batch. Functions whose leave
+	 * address changed are replaced.
+	 */
+	private void update(Collection<HookableFunction> oldFunctions, Collection<HookableFunction> newFunctions) {
+		Map<HookableFunction, HookableFunction> added = new HashMap<>();
+		newFunctions.forEach(f -> added.put(f, f));
+		List<HookableFunction> removed = new ArrayList<>();
+		for (HookableFunction function : oldFunctions) {
+			HookableFunction newFunction = added.get(function);
+			if (newFunction != null && newFunction.getLeaveAddress().equals(function.getLeaveAddress()))
+				added.remove(function);
+			else
+				removed.add(function);
+		}
+		try (Batch b = batch()) {
+			removeAll(removed);
+			addAll(added.keySet());
+		}
+	}
+}
@@ -6,13 +6,17 @@ import ghidra.program.model.address.Address;
  * Represents an instruction of a Morion trace file.
  * An instruction consists of an address, machine code, assembly code, and C code.
  * 
- * Two instructions are considered the same if they have the same address.
+ * Two instructions are considered the same if they have the same address,
+ * i.e. the same address space ID and offset. Instructions are ordered by
+ * address space ID and then numerically by the unsigned offset.
  */
 public class Instruction implements Comparable<Instruction> {
 	private final Address address;
 	private final String machineCode;
 	private final String assemblyCode;
 	private final String code;
+	private final int spaceId;
+	private final long offset;
 
 	/**
      * Constructs a new Instruction object with the specified address, machine code, assembly code, and C code.
@@ -27,6 +31,8 @@ public class Instruction implements Comparable<Instruction> {
 		this.machineCode = machineCode;
 		this.assemblyCode = assemblyCode;
 		this.code = code;
+		this.spaceId = address.getAddressSpace().getSpaceID();
+		this.offset = address.getOffset();
 	}
 
 	public Address getAddress() {
@@ -45,6 +51,13 @@ public class Instruction implements Comparable<Instruction> {
 		return code;
 	}
 
+	/**
+	 * @return the offset of the address of this instruction
+	 */
+	public long getOffset() {
+		return offset;
+	}
+
 	@Override
 	public boolean equals(Object obj) {
 		if (obj == this)
@@ -53,17 +66,19 @@ public class Instruction implements Comparable<Instruction> {
 			return false;
 
 		Instruction other = (Instruction) obj;
-		return this.address.toString().equals(other.address.toString());
+		return this.spaceId == other.spaceId && this.offset == other.offset;
 	}
 
 	@Override
 	public int hashCode() {
-		return this.address.toString().hashCode();
+		return Long.hashCode(offset) * 31 + spaceId;
 	}
 
 	@Override
 	public int compareTo(Instruction o) {
-		return this.address.toString().compareTo(o.address.toString());
+		if (this.spaceId != o.spaceId)
+			return Integer.compare(this.spaceId, o.spaceId);
+		return Long.compareUnsigned(this.offset, o.offset);
 	}
 
 }
@@ -0,0 +1,506 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Memory state stored as non-overlapping runs of bytes, ordered by address.
+ *
+ * A run either repeats a single value (e.g. a filled buffer) or holds the
+ * individual values of its bytes in a {@code byte[]}. Adjacent runs with the
+ * same symbolic flag are merged where possible, so large ranges only take a
+ * few objects regardless of their size.
+ *
+ * The store can also be used as a {@link java.util.Set} of
+ * {@link MemoryEntry}, one per byte, as found in the YAML files. These entries
+ * are only created while iterating. Their names are formatted with
+ * {@link #formatAddress(long)} and their values with
+ * {@link #formatValue(byte)}, so two entries for the same byte always have the
+ * same name regardless of how the address was written originally.
+ */
+public class MemoryStore extends AbstractSet<MemoryEntry> {
+	private static final int MAX_DATA_LENGTH = 1 << 20; // maximum length of a run with individual values
+	private static final int SHORT_FILL_LENGTH = 8; // filled runs up to this length are merged into value runs
+	private static final int MIN_ADDRESS_DIGITS = 8;
+	private static final String[] VALUES = new String[256];
+	private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.ISO_8859_1);
+
+	static {
+		for (int i = 0; i < VALUES.length; i++)
+			VALUES[i] = String.format("0x%02x", i);
+	}
+
+	private final TreeMap<Long, Run> runs = new TreeMap<>();
+	private long byteCount = 0;
+	private Run[] indexedRuns; // runs in order for positional access, null if outdated
+	private long[] firstIndices; // index of the first byte of each run in indexedRuns
+
+	/**
+	 * Sets all bytes from @param start to @param end (inclusive) to @param value.
+	 *
+	 * @param start    first address to set
+	 * @param end      last address to set
+	 * @param value    to set all bytes to
+	 * @param symbolic whether the bytes are symbolic
+	 */
+	public void fill(long start, long end, byte value, boolean symbolic) {
+		checkRange(start, end);
+		removeRange(start, end);
+		insert(new Run(start, end - start + 1, null, value, symbolic));
+	}
+
+	/**
+	 * Sets the bytes starting at @param start to @param values.
+	 *
+	 * @param start    address of the first value
+	 * @param values   to set
+	 * @param symbolic whether the bytes are symbolic
+	 */
+	public void write(long start, byte[] values, boolean symbolic) {
+		if (values.length == 0)
+			return;
+		for (int i = 0; i < values.length; i += MAX_DATA_LENGTH) {
+			int length = Math.min(MAX_DATA_LENGTH, values.length - i);
+			long runStart = start + i;
+			checkRange(runStart, runStart + length - 1);
+			removeRange(runStart, runStart + length - 1);
+			insert(new Run(runStart, length, Arrays.copyOfRange(values, i, i + length), (byte) 0, symbolic));
+		}
+	}
+
+	/**
+	 * Sets a single byte.
+	 *
+	 * @param address  of the byte
+	 * @param value    to set the byte to
+	 * @param symbolic whether the byte is symbolic
+	 */
+	public void put(long address, byte value, boolean symbolic) {
+		fill(address, address, value, symbolic);
+	}
+
+	/**
+	 * Copies all bytes of @param other into this store, overwriting existing
+	 * bytes at the same addresses.
+	 *
+	 * @param other store to copy
+	 */
+	public void putAll(MemoryStore other) {
+		if (other == this)
+			return;
+		for (Run run : new ArrayList<>(other.runs.values())) {
+			removeRange(run.start, run.getEnd());
+			insert(run.copy());
+		}
+	}
+
+	/**
+	 * @param start first address to copy
+	 * @param end   last address to copy
+	 * @return a new store with the bytes of this store from @param start to
+	 *         @param end (inclusive)
+	 */
+	public MemoryStore copyRange(long start, long end) {
+		checkRange(start, end);
+		MemoryStore copy = new MemoryStore();
+		Long first = runs.floorKey(start);
+		for (Run run : runs.tailMap(first == null ? start : first, true).values()) {
+			if (run.start > end)
+				break;
+			if (run.getEnd() >= start)
+				copy.insert(run.slice(Math.max(start, run.start), Math.min(end, run.getEnd())));
+		}
+		return copy;
+	}
+
+	/**
+	 * Removes all bytes from @param start to @param end (inclusive).
+	 *
+	 * @param start first address to remove
+	 * @param end   last address to remove
+	 */
+	public void removeRange(long start, long end) {
+		checkRange(start, end);
+		split(start);
+		if (end != Long.MAX_VALUE)
+			split(end + 1);
+		Map<Long, Run> removed = runs.subMap(start, true, end, true);
+		for (Run run : removed.values())
+			byteCount -= run.length;
+		removed.clear();
+		indexedRuns = null;
+	}
+
+	/**
+	 * @return the number of bytes in this store
+	 */
+	public long getByteCount() {
+		return byteCount;
+	}
+
+	/**
+	 * @return all runs in the order of their addresses
+	 */
+	public Collection<Run> getRuns() {
+		return Collections.unmodifiableCollection(runs.values());
+	}
+
+	/**
+	 * @param address to look up
+	 * @return the run containing @param address or {@code null} if the byte is
+	 *         not present
+	 */
+	public Run getRun(long address) {
+		Map.Entry<Long, Run> floor = runs.floorEntry(address);
+		if (floor == null || floor.getValue().getEnd() < address)
+			return null;
+		return floor.getValue();
+	}
+
+	/**
+	 * @param address to look up
+	 * @return the entry of the byte at @param address or {@code null} if the
+	 *         byte is not present
+	 */
+	public MemoryEntry getEntry(long address) {
+		Run run = getRun(address);
+		return run == null ? null : run.getEntry(address);
+	}
+
+	/**
+	 * @param index of the byte in address order, between 0 and
+	 *              {@link #getByteCount()}
+	 * @return the entry of the byte
+	 */
+	public MemoryEntry get(long index) {
+		long address = getAddress(index);
+		return getRun(address).getEntry(address);
+	}
+
+	/**
+	 * @param index of the byte in address order, between 0 and
+	 *              {@link #getByteCount()}
+	 * @return the address of the byte
+	 */
+	public long getAddress(long index) {
+		Objects.checkIndex(index, byteCount);
+		if (indexedRuns == null) {
+			indexedRuns = runs.values().toArray(new Run[0]);
+			firstIndices = new long[indexedRuns.length];
+			long first = 0;
+			for (int i = 0; i < indexedRuns.length; i++) {
+				firstIndices[i] = first;
+				first += indexedRuns[i].length;
+			}
+		}
+		int i = Arrays.binarySearch(firstIndices, index);
+		if (i < 0)
+			i = -i - 2; // run starting before index
+		return indexedRuns[i].start + index - firstIndices[i];
+	}
+
+	@Override
+	public int size() {
+		return (int) Math.min(byteCount, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return byteCount == 0;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (!(o instanceof MemoryEntry))
+			return false;
+		try {
+			return getRun(parseAddress(((MemoryEntry) o).getName())) != null;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Adds the byte of @param e if there is no byte at its address yet.
+	 *
+	 * @throws IllegalArgumentException if the name of @param e is not a
+	 *                                  hexadecimal address or its value is not a
+	 *                                  hexadecimal byte
+	 */
+	@Override
+	public boolean add(MemoryEntry e) {
+		long address = parseAddress(e.getName());
+		byte value = parseValue(e.getValue());
+		if (getRun(address) != null)
+			return false;
+		put(address, value, e.isSymbolic());
+		return true;
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		if (!contains(o))
+			return false;
+		long address = parseAddress(((MemoryEntry) o).getName());
+		removeRange(address, address);
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		boolean changed = false;
+		for (Object o : c)
+			changed |= remove(o);
+		return changed;
+	}
+
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		List<MemoryEntry> toRemove = new ArrayList<>();
+		for (MemoryEntry entry : this)
+			if (!c.contains(entry))
+				toRemove.add(entry);
+		return removeAll(toRemove);
+	}
+
+	@Override
+	public void clear() {
+		runs.clear();
+		byteCount = 0;
+		indexedRuns = null;
+	}
+
+	/**
+	 * Iterates over all bytes in the order of their addresses. The entries are
+	 * created on the fly. Removing entries through the iterator is not supported.
+	 */
+	@Override
+	public Iterator<MemoryEntry> iterator() {
+		Iterator<Run> runIterator = runs.values().iterator();
+		return new Iterator<>() {
+			private Run run;
+			private long address;
+
+			@Override
+			public boolean hasNext() {
+				return (run != null && address <= run.getEnd()) || runIterator.hasNext();
+			}
+
+			@Override
+			public MemoryEntry next() {
+				if (run == null || address > run.getEnd()) {
+					if (!runIterator.hasNext())
+						throw new NoSuchElementException();
+					run = runIterator.next();
+					address = run.start;
+				}
+				return run.getEntry(address++);
+			}
+		};
+	}
+
+	/**
+	 * Splits the run containing @param address, so that a run starts at
+	 * @param address.
+	 */
+	private void split(long address) {
+		Map.Entry<Long, Run> floor = runs.floorEntry(address);
+		if (floor == null || floor.getKey() == address || floor.getValue().getEnd() < address)
+			return;
+		Run head = floor.getValue();
+		Run tail = head.slice(address, head.getEnd());
+		head.length = address - head.start;
+		runs.put(address, tail);
+		indexedRuns = null;
+	}
+
+	/**
+	 * Inserts @param run into an empty range and merges it with its neighbors if
+	 * possible.
+	 */
+	private void insert(Run run) {
+		byteCount += run.length;
+		indexedRuns = null;
+
+		Map.Entry<Long, Run> lower = runs.lowerEntry(run.start);
+		if (lower != null && lower.getValue().canAppend(run)) {
+			lower.getValue().append(run);
+			run = lower.getValue();
+		} else {
+			runs.put(run.start, run);
+		}
+
+		if (run.getEnd() == Long.MAX_VALUE)
+			return;
+		Run higher = runs.get(run.getEnd() + 1);
+		if (higher != null && run.canAppend(higher)) {
+			run.append(higher);
+			runs.remove(higher.start);
+		}
+	}
+
+	private static void checkRange(long start, long end) {
+		if (start < 0 || end < start)
+			throw new IllegalArgumentException(
+					"Illegal address range " + formatAddress(start) + " - " + formatAddress(end));
+	}
+
+	/**
+	 * @param address to format
+	 * @return @param address as hexadecimal with at least 8 digits, e.g.
+	 *         {@code 0x00001000}
+	 */
+	public static String formatAddress(long address) {
+		int digits = Math.max(MIN_ADDRESS_DIGITS, (Long.SIZE - Long.numberOfLeadingZeros(address) + 3) / 4);
+		byte[] chars = new byte[digits + 2];
+		chars[0] = '0';
+		chars[1] = 'x';
+		for (int i = chars.length - 1; i >= 2; i--, address >>>= 4)
+			chars[i] = HEX_DIGITS[(int) (address & 0xf)];
+		return new String(chars, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * @param value to format
+	 * @return @param value as hexadecimal with two digits, e.g. {@code 0x0f}
+	 */
+	public static String formatValue(byte value) {
+		return VALUES[value & 0xff];
+	}
+
+	/**
+	 * @param name hexadecimal address starting with {@code 0x}
+	 * @return the address
+	 * @throws IllegalArgumentException if @param name is not a non-negative
+	 *                                  hexadecimal number
+	 */
+	public static long parseAddress(String name) {
+		long address = parseHex(name, 16);
+		if (address < 0)
+			throw new IllegalArgumentException("Address " + name + " is out of range");
+		return address;
+	}
+
+	/**
+	 * @param value hexadecimal byte starting with {@code 0x}
+	 * @return the byte
+	 * @throws IllegalArgumentException if @param value is not a hexadecimal byte
+	 */
+	public static byte parseValue(String value) {
+		return (byte) parseHex(value, 2);
+	}
+
+	private static long parseHex(String text, int maxDigits) {
+		if (text == null || !text.startsWith("0x") || text.length() <= 2 || text.length() > maxDigits + 2)
+			throw new IllegalArgumentException("'" + text + "' is not a hexadecimal number");
+		return Long.parseUnsignedLong(text.substring(2), 16);
+	}
+
+	/**
+	 * Consecutive bytes of a {@link MemoryStore} that share the symbolic flag.
+	 */
+	public static class Run {
+		private final long start;
+		private long length;
+		private byte[] values; // null if all bytes are fillValue, may be longer than length
+		private final byte fillValue;
+		private final boolean symbolic;
+
+		private Run(long start, long length, byte[] values, byte fillValue, boolean symbolic) {
+			this.start = start;
+			this.length = length;
+			this.values = values;
+			this.fillValue = fillValue;
+			this.symbolic = symbolic;
+		}
+
+		public long getStart() {
+			return start;
+		}
+
+		public long getEnd() {
+			return start + length - 1;
+		}
+
+		public long getLength() {
+			return length;
+		}
+
+		public boolean isSymbolic() {
+			return symbolic;
+		}
+
+		/**
+		 * @return {@code true} if all bytes of the run have the same value
+		 */
+		public boolean isFilled() {
+			return values == null;
+		}
+
+		/**
+		 * @param address between {@link #getStart()} and {@link #getEnd()}
+		 * @return the value of the byte at @param address
+		 */
+		public byte getValue(long address) {
+			if (address < start || address > getEnd())
+				throw new IndexOutOfBoundsException(formatAddress(address));
+			return values == null ? fillValue : values[(int) (address - start)];
+		}
+
+		private MemoryEntry getEntry(long address) {
+			return new MemoryEntry(formatAddress(address), formatValue(getValue(address)), symbolic);
+		}
+
+		private boolean isShort() {
+			return values != null || length <= SHORT_FILL_LENGTH;
+		}
+
+		private boolean canAppend(Run next) {
+			if (symbolic != next.symbolic || getEnd() + 1 != next.start)
+				return false;
+			if (values == null && next.values == null && fillValue == next.fillValue)
+				return true;
+			return isShort() && next.isShort() && length + next.length <= MAX_DATA_LENGTH;
+		}
+
+		private void append(Run next) {
+			if (values == null && next.values == null && fillValue == next.fillValue) {
+				length += next.length;
+				return;
+			}
+			int newLength = (int) (length + next.length);
+			if (values == null || values.length < newLength) {
+				byte[] grown = new byte[Math.min(MAX_DATA_LENGTH, Math.max(newLength, 2 * (int) length))];
+				for (int i = 0; i < length; i++)
+					grown[i] = getValue(start + i);
+				values = grown;
+			}
+			for (int i = 0; i < next.length; i++)
+				values[(int) length + i] = next.getValue(next.start + i);
+			length = newLength;
+		}
+
+		private Run slice(long from, long to) {
+			long sliceLength = to - from + 1;
+			if (values == null)
+				return new Run(from, sliceLength, null, fillValue, symbolic);
+			int offset = (int) (from - start);
+			return new Run(from, sliceLength, Arrays.copyOfRange(values, offset, offset + (int) sliceLength),
+					fillValue, symbolic);
+		}
+
+		private Run copy() {
+			return slice(start, getEnd());
+		}
+	}
+}
@@ -1,18 +1,23 @@
 package model;
 
+import java.util.List;
+
+import util.observable.Observable;
+import util.observable.Observable.Batch;
 import util.observable.ObservableSet;
 
 /**
  * Represents a Morion init trace file.
  * It maintains observable sets of hooks, entry memory entries, and entry
- * register entries.
+ * register entries. Memory entries are kept in an {@link ObservableMemory},
+ * hooks in a {@link HookStore} indexed by entry address.
  */
 public class MorionInitTraceFile {
-	private final ObservableSet<Hook> hooks = new ObservableSet<>();
-	private final ObservableSet<MemoryEntry> entryMemory = new ObservableSet<>();
+	private final HookStore hooks = new HookStore();
+	private final ObservableMemory entryMemory = new ObservableMemory();
 	private final ObservableSet<MemoryEntry> entryRegisters = new ObservableSet<>();
 
-	public ObservableSet<MemoryEntry> getEntryMemory() {
+	public ObservableMemory getEntryMemory() {
 		return entryMemory;
 	}
 
@@ -20,17 +25,61 @@ public class MorionInitTraceFile {
 		return entryRegisters;
 	}
 
-	public ObservableSet<Hook> getHooks() {
+	public HookStore getHooks() {
 		return hooks;
 	}
 
+	/**
+	 * Replaces all hooks, entry memory entries, and entry register entries with
+	 * those of @param newContent.
+	 * 
+	 * @param newContent trace file to copy the content from
+	 */
+	public void replaceContent(MorionInitTraceFile newContent) {
+		try (Batch b = batch()) {
+			hooks.replaceContent(newContent.getHooks());
+			entryMemory.replaceContent(newContent.getEntryMemory());
+			entryRegisters.replaceContent(newContent.getEntryRegisters());
+		}
+	}
+
 	/**
 	 * Clears the initialization trace file by removing all hooks, entry memory
 	 * entries, and entry register entries.
 	 */
 	public void clear() {
-		hooks.clear();
-		entryMemory.clear();
-		entryRegisters.clear();
+		try (Batch b = batch()) {
+			hooks.clear();
+			entryMemory.clear();
+			entryRegisters.clear();
+		}
+	}
+
+	/**
+	 * Starts a {@link Batch} on all observable parts of this trace file. Their
+	 * observers are notified once each when the batch is closed, after all
+	 * parts have been changed.
+	 * 
+	 * @return the started batch, to be closed e.g. using try-with-resources
+	 */
+	public Batch batch() {
+		return Observable.batchAll(getObservables());
+	}
+
+	/**
+	 * Runs @param action in a {@link #batch()}.
+	 */
+	public void batch(Runnable action) {
+		try (Batch b = batch()) {
+			action.run();
+		}
+	}
+
+	/**
+	 * @return all observable parts of this trace file, in the order their
+	 *         observers are notified at the end of a batch
+	 */
+	protected List<Observable<?>> getObservables() {
+		return List.of(hooks, entryMemory, entryRegisters);
 	}
 }
@@ -1,22 +1,28 @@
 package model;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import ghidra.program.model.address.Address;
+import util.observable.Observable;
+import util.observable.Observable.Batch;
 import util.observable.ObservableSet;
 
 /**
  * Represents a Morion trace file.
  * It extends the {@link MorionInitTraceFile} class and adds observable sets of
- * leave memory entries, leave register entries, and traced instructions. It
- * also tracks the entry and leave addresses of the Morion trace.
+ * leave memory entries and leave register entries, and a {@link TraceStream}
+ * of the traced instructions. It also tracks the entry and leave addresses of
+ * the Morion trace.
  */
 public class MorionTraceFile extends MorionInitTraceFile {
-	private final ObservableSet<MemoryEntry> leaveMemory = new ObservableSet<>();
+	private final ObservableMemory leaveMemory = new ObservableMemory();
 	private final ObservableSet<MemoryEntry> leaveRegisters = new ObservableSet<>();
-	private final ObservableSet<Instruction> instructions = new ObservableSet<>();
+	private final TraceStream instructions = new TraceStream();
 	private Address entryAddress;
 	private Address leaveAddress;
 
-	public ObservableSet<MemoryEntry> getLeaveMemory() {
+	public ObservableMemory getLeaveMemory() {
 		return leaveMemory;
 	}
 
@@ -24,7 +30,7 @@ public class MorionTraceFile extends MorionInitTraceFile {
 		return leaveRegisters;
 	}
 
-	public ObservableSet<Instruction> getInstructions() {
+	public TraceStream getInstructions() {
 		return instructions;
 	}
 
@@ -44,6 +50,27 @@ public class MorionTraceFile extends MorionInitTraceFile {
 		this.leaveAddress = leaveAddress;
 	}
 
+	/**
+	 * Replaces the whole content of this trace file with the content of
+	 * @param newContent. The entry and leave addresses are set first and the
+	 * traced instructions last, so observers of the instructions see a complete
+	 * trace file.
+	 * 
+	 * @param newContent trace file to copy the content from, its traced
+	 *                   instructions are moved, see
+	 *                   {@link TraceStream#replaceContent(TraceStream)}
+	 */
+	public void replaceContent(MorionTraceFile newContent) {
+		try (Batch b = batch()) {
+			entryAddress = newContent.getEntryAddress();
+			leaveAddress = newContent.getLeaveAddress();
+			super.replaceContent(newContent);
+			leaveMemory.replaceContent(newContent.getLeaveMemory());
+			leaveRegisters.replaceContent(newContent.getLeaveRegisters());
+			instructions.replaceContent(newContent.getInstructions());
+		}
+	}
+
 	/**
 	 * Clears the trace file by removing all hooks, entry memory entries, entry
 	 * register entries, leave memory entries,
@@ -52,11 +79,26 @@ public class MorionTraceFile extends MorionInitTraceFile {
 	 */
 	@Override
 	public void clear() {
-		super.clear();
-		leaveMemory.clear();
-		leaveRegisters.clear();
-		instructions.clear();
-		entryAddress = null;
-		leaveAddress = null;
+		try (Batch b = batch()) {
+			super.clear();
+			leaveMemory.clear();
+			leaveRegisters.clear();
+			instructions.clear();
+			entryAddress = null;
+			leaveAddress = null;
+		}
+	}
+
+	/**
+	 * The traced instructions come last, so their observers see a complete trace
+	 * file.
+	 */
+	@Override
+	protected List<Observable<?>> getObservables() {
+		List<Observable<?>> observables = new ArrayList<>(super.getObservables());
+		observables.add(leaveMemory);
+		observables.add(leaveRegisters);
+		observables.add(instructions);
+		return observables;
 	}
 }
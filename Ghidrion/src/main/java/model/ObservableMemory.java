@@ -0,0 +1,130 @@
+package model;
+
+import java.util.Collection;
+import java.util.List;
+
+import util.observable.CollectionChange;
+import util.observable.ObservableSet;
+
+/**
+ * {@link util.observable.Observable} memory state backed by a
+ * {@link MemoryStore}. Besides the {@link java.util.Set} operations on single
+ * {@link MemoryEntry}s, whole ranges can be set at once, which only notifies the
+ * observers once and doesn't create an entry per byte.
+ * 
+ * The {@link CollectionChange}s of range operations contain
+ * {@link MemoryStore}s with the removed and added bytes of the range, which are
+ * as compact as the range itself.
+ */
+public class ObservableMemory extends ObservableSet<MemoryEntry> {
+	private final MemoryStore store;
+
+	public ObservableMemory() {
+		this(new MemoryStore());
+	}
+
+	private ObservableMemory(MemoryStore store) {
+		super(store);
+		this.store = store;
+	}
+
+	/**
+	 * @return the underlying store. Don't modify it directly, as observers are
+	 *         not notified about such changes.
+	 */
+	public MemoryStore getStore() {
+		return store;
+	}
+
+	/**
+	 * See {@link MemoryStore#fill(long, long, byte, boolean)}.
+	 */
+	public void fill(long start, long end, byte value, boolean symbolic) {
+		MemoryStore removed = store.copyRange(start, end);
+		store.fill(start, end, value, symbolic);
+		notifyObservers(CollectionChange.of(store.copyRange(start, end), removed));
+	}
+
+	/**
+	 * See {@link MemoryStore#write(long, byte[], boolean)}.
+	 */
+	public void write(long start, byte[] values, boolean symbolic) {
+		if (values.length == 0) {
+			notifyObservers(CollectionChange.none());
+			return;
+		}
+		long end = start + values.length - 1;
+		MemoryStore removed = store.copyRange(start, end);
+		store.write(start, values, symbolic);
+		notifyObservers(CollectionChange.of(store.copyRange(start, end), removed));
+	}
+
+	/**
+	 * See {@link MemoryStore#removeRange(long, long)}.
+	 */
+	public void removeRange(long start, long end) {
+		MemoryStore removed = store.copyRange(start, end);
+		store.removeRange(start, end);
+		notifyObservers(CollectionChange.removed(removed));
+	}
+
+	/**
+	 * Copies memory stores range by range instead of entry by entry.
+	 */
+	@Override
+	public boolean updateAll(Collection<MemoryEntry> es) {
+		MemoryStore other = toStore(es);
+		if (other == null)
+			return super.updateAll(es);
+		if (other == store) {
+			notifyObservers(CollectionChange.none());
+			return false;
+		}
+		MemoryStore removed = new MemoryStore();
+		for (MemoryStore.Run run : other.getRuns())
+			removed.putAll(store.copyRange(run.getStart(), run.getEnd()));
+		store.putAll(other);
+		// the change is only reported at the end of a batch, when other may have changed
+		MemoryStore added = isBatching() ? other.copyRange(0, Long.MAX_VALUE) : other;
+		notifyObservers(CollectionChange.of(added, removed));
+		return !other.isEmpty();
+	}
+
+	/**
+	 * Copies memory stores range by range instead of entry by entry.
+	 */
+	@Override
+	public boolean replaceContent(Collection<MemoryEntry> newContent) {
+		MemoryStore other = toStore(newContent);
+		if (other == null)
+			return super.replaceContent(newContent);
+		if (other != store) {
+			store.clear();
+			store.putAll(other);
+		}
+		notifyObservers(CollectionChange.replacedAll());
+		return !other.isEmpty();
+	}
+
+	/**
+	 * Changes of range operations are not merged entry by entry, as that would
+	 * create a {@link MemoryEntry} per byte of the ranges. If a batch contains
+	 * one, all entries are reported as replaced instead.
+	 */
+	@Override
+	protected CollectionChange<MemoryEntry> mergeChanges(List<CollectionChange<MemoryEntry>> changes) {
+		if (changes.size() > 1)
+			for (CollectionChange<MemoryEntry> change : changes)
+				if (change.getAdded() instanceof MemoryStore || change.getRemoved() instanceof MemoryStore)
+					return CollectionChange.replacedAll();
+		return super.mergeChanges(changes);
+	}
+
+	private static MemoryStore toStore(Collection<MemoryEntry> es) {
+		if (es instanceof ObservableMemory)
+			return ((ObservableMemory) es).getStore();
+		if (es instanceof MemoryStore)
+			return (MemoryStore) es;
+		return null;
+	}
+}
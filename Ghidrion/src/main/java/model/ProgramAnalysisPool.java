@@ -0,0 +1,29 @@
+package model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * {@link ForkJoinPool} for the long-running parallel reads of a program, like
+ * discovering its hookable functions or computing the coverage of a trace.
+ * They don't run on the {@link ForkJoinPool#commonPool()}, so they can't starve
+ * other users of the common pool, e.g. parallel streams of Ghidra.
+ */
+public class ProgramAnalysisPool {
+	private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+			pool -> {
+				ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+				thread.setName("Ghidrion analysis " + thread.getPoolIndex());
+				return thread;
+			}, null, false);
+
+	private ProgramAnalysisPool() {
+	}
+
+	/**
+	 * @return the pool shared by all program analyses of the plugin
+	 */
+	public static ForkJoinPool get() {
+		return POOL;
+	}
+}
@@ -0,0 +1,250 @@
+package model;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import ghidra.program.model.address.Address;
+import ghidra.program.model.address.AddressSpace;
+import util.collection.LongIntHashMap;
+import util.observable.Observable;
+
+/**
+ * The traced instructions of a Morion trace file in execution order.
+ *
+ * Every distinct instruction address is stored once, together with its
+ * {@link Instruction} metadata and the number of times it has been executed.
+ * Each step of the trace only takes the {@code int} index of its distinct
+ * instruction, so loops with many iterations stay small. All addresses of a
+ * trace are in the same {@link AddressSpace} and are stored as {@code long}
+ * offsets.
+ *
+ * Observers are notified whenever the content changes.
+ */
+public class TraceStream extends Observable<TraceStream> {
+	private static final int NOT_FOUND = -1;
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8; // largest array size the VM allows
+
+	private AddressSpace addressSpace;
+	private int[] steps = new int[INITIAL_CAPACITY]; // index into the distinct instructions per step
+	private int stepCount = 0;
+	private long[] offsets = new long[INITIAL_CAPACITY]; // offset per distinct instruction
+	private int[] hitCounts = new int[INITIAL_CAPACITY];
+	private Instruction[] instructions = new Instruction[INITIAL_CAPACITY];
+	private int instructionCount = 0;
+	private LongIntHashMap indices = new LongIntHashMap();
+
+	/**
+	 * Appends @param instruction as the next executed step. If its address has
+	 * been executed before, only the hit count is increased and the metadata of
+	 * the first execution is kept.
+	 *
+	 * @param instruction to append
+	 * @throws IllegalArgumentException if the address of @param instruction is
+	 *                                  in another address space than the
+	 *                                  previous ones
+	 * @throws IllegalStateException    if the trace stream already holds the
+	 *                                  maximum number of steps
+	 */
+	public void append(Instruction instruction) {
+		Address address = instruction.getAddress();
+		if (addressSpace == null)
+			addressSpace = address.getAddressSpace();
+		else if (!addressSpace.equals(address.getAddressSpace()))
+			throw new IllegalArgumentException("Address " + address + " is not in address space "
+					+ addressSpace.getName());
+
+		long offset = address.getOffset();
+		int index = indices.get(offset, NOT_FOUND);
+		if (index == NOT_FOUND) {
+			if (instructionCount == offsets.length) {
+				offsets = Arrays.copyOf(offsets, grow(instructionCount, "distinct instructions"));
+				hitCounts = Arrays.copyOf(hitCounts, offsets.length);
+				instructions = Arrays.copyOf(instructions, offsets.length);
+			}
+			index = instructionCount++;
+			offsets[index] = offset;
+			instructions[index] = instruction;
+			indices.put(offset, index, NOT_FOUND);
+		}
+		hitCounts[index]++;
+
+		if (stepCount == steps.length)
+			steps = Arrays.copyOf(steps, grow(stepCount, "steps"));
+		steps[stepCount++] = index;
+		notifyObservers(this);
+	}
+
+	/**
+	 * Replaces all steps of this trace stream by the ones of @param newContent.
+	 * The arrays and the index of @param newContent are taken over instead of
+	 * copied, so @param newContent is empty afterwards.
+	 *
+	 * @param newContent to move the steps from
+	 */
+	public void replaceContent(TraceStream newContent) {
+		if (newContent == this)
+			return;
+		addressSpace = newContent.addressSpace;
+		steps = newContent.steps;
+		stepCount = newContent.stepCount;
+		offsets = newContent.offsets;
+		hitCounts = newContent.hitCounts;
+		instructions = newContent.instructions;
+		instructionCount = newContent.instructionCount;
+		indices = newContent.indices;
+		newContent.clear();
+		notifyObservers(this);
+	}
+
+	/**
+	 * Removes all steps.
+	 */
+	public void clear() {
+		addressSpace = null;
+		steps = new int[INITIAL_CAPACITY];
+		stepCount = 0;
+		offsets = new long[INITIAL_CAPACITY];
+		hitCounts = new int[INITIAL_CAPACITY];
+		instructions = new Instruction[INITIAL_CAPACITY];
+		instructionCount = 0;
+		indices = new LongIntHashMap();
+		notifyObservers(this);
+	}
+
+	/**
+	 * @return {@code true} if no instruction has been traced
+	 */
+	public boolean isEmpty() {
+		return stepCount == 0;
+	}
+
+	/**
+	 * @return the address space of all traced addresses, or {@code null} if the
+	 *         trace is empty
+	 */
+	public AddressSpace getAddressSpace() {
+		return addressSpace;
+	}
+
+	/**
+	 * @return the number of executed steps, including repeated executions
+	 */
+	public int getStepCount() {
+		return stepCount;
+	}
+
+	/**
+	 * @param step index in execution order
+	 * @return the offset of the address executed in @param step
+	 */
+	public long getStepOffset(int step) {
+		Objects.checkIndex(step, stepCount);
+		return offsets[steps[step]];
+	}
+
+	/**
+	 * @param step index in execution order
+	 * @return the index of the distinct address executed in @param step
+	 */
+	public int getStepIndex(int step) {
+		Objects.checkIndex(step, stepCount);
+		return steps[step];
+	}
+
+	/**
+	 * @param step index in execution order
+	 * @return the instruction executed in @param step
+	 */
+	public Instruction getStepInstruction(int step) {
+		Objects.checkIndex(step, stepCount);
+		return instructions[steps[step]];
+	}
+
+	/**
+	 * @return the number of distinct traced addresses
+	 */
+	public int getInstructionCount() {
+		return instructionCount;
+	}
+
+	/**
+	 * @param index of a distinct address, in order of the first execution
+	 * @return the offset of the distinct address
+	 */
+	public long getInstructionOffset(int index) {
+		Objects.checkIndex(index, instructionCount);
+		return offsets[index];
+	}
+
+	/**
+	 * @param index of a distinct address, in order of the first execution
+	 * @return the metadata of the instruction at the distinct address
+	 */
+	public Instruction getInstruction(int index) {
+		Objects.checkIndex(index, instructionCount);
+		return instructions[index];
+	}
+
+	/**
+	 * @return the offsets of all distinct traced addresses, in order of their
+	 *         first execution
+	 */
+	public long[] getInstructionOffsets() {
+		return Arrays.copyOf(offsets, instructionCount);
+	}
+
+	/**
+	 * @param address to look up
+	 * @return the metadata of the instruction at @param address or {@code null}
+	 *         if it has not been traced
+	 */
+	public Instruction getInstruction(Address address) {
+		int index = indexOf(address);
+		return index == NOT_FOUND ? null : instructions[index];
+	}
+
+	/**
+	 * @param offset to look up in the address space of the trace
+	 * @return the metadata of the instruction at @param offset or {@code null}
+	 *         if it has not been traced
+	 */
+	public Instruction getInstructionAtOffset(long offset) {
+		int index = indices.get(offset, NOT_FOUND);
+		return index == NOT_FOUND ? null : instructions[index];
+	}
+
+	/**
+	 * @param address to look up
+	 * @return how many times @param address has been executed
+	 */
+	public int getHitCount(Address address) {
+		int index = indexOf(address);
+		return index == NOT_FOUND ? 0 : hitCounts[index];
+	}
+
+	/**
+	 * @param index of a distinct address, in order of the first execution
+	 * @return how many times the distinct address has been executed
+	 */
+	public int getHitCount(int index) {
+		Objects.checkIndex(index, instructionCount);
+		return hitCounts[index];
+	}
+
+	/**
+	 * @return the capacity to grow a full array of @param length elements to
+	 * @throws IllegalStateException if the array can't grow anymore
+	 */
+	private static int grow(int length, String elements) {
+		if (length >= MAX_CAPACITY)
+			throw new IllegalStateException("A trace can't have more than " + MAX_CAPACITY + " " + elements);
+		return (int) Math.min(2L * length, MAX_CAPACITY);
+	}
+
+	private int indexOf(Address address) {
+		if (address == null || !Objects.equals(address.getAddressSpace(), addressSpace))
+			return NOT_FOUND;
+		return indices.get(address.getOffset(), NOT_FOUND);
+	}
+}
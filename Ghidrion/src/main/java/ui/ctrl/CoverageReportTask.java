@@ -0,0 +1,68 @@
+package ui.ctrl;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import ghidra.program.model.address.AddressSpace;
+import ghidra.program.model.listing.Program;
+import ghidra.util.Swing;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.Task;
+import ghidra.util.task.TaskMonitor;
+import model.FunctionCoverage;
+import model.TraceStream;
+
+/**
+ * Computes the coverage of the functions touched by a trace in the background,
+ * see
+ * {@link FunctionCoverage#getFunctionCoverages(Program, AddressSpace, long[], TaskMonitor)}.
+ * The coverages are only handed to the publisher (on the Swing thread) if the
+ * computation has not been cancelled. A task can be cancelled with
+ * {@link #cancel()} before it has started, too.
+ */
+public class CoverageReportTask extends Task {
+	private final Program program;
+	private final AddressSpace space;
+	private final long[] offsets;
+	private final Consumer<List<FunctionCoverage>> publisher;
+	private volatile TaskMonitor monitor; // of the running task, null if it hasn't started yet
+	private volatile boolean cancelled = false;
+
+	/**
+	 * @param program      containing the traced instructions
+	 * @param instructions of the trace, whose addresses are copied
+	 * @param publisher    receives the coverages on the Swing thread
+	 */
+	public CoverageReportTask(Program program, TraceStream instructions,
+			Consumer<List<FunctionCoverage>> publisher) {
+		super("Computing trace coverage of " + program.getName(), true, true, false);
+		this.program = Objects.requireNonNull(program);
+		this.space = instructions.getAddressSpace();
+		this.offsets = instructions.getInstructionOffsets();
+		this.publisher = Objects.requireNonNull(publisher);
+	}
+
+	/**
+	 * Cancels the computation, e.g. because it has been superseded by a newer
+	 * one.
+	 */
+	@Override
+	public void cancel() {
+		cancelled = true;
+		TaskMonitor runningMonitor = monitor;
+		if (runningMonitor != null)
+			runningMonitor.cancel();
+		super.cancel();
+	}
+
+	@Override
+	public void run(TaskMonitor monitor) throws CancelledException {
+		this.monitor = monitor;
+		if (cancelled) // before it has been started
+			monitor.cancel();
+		monitor.checkCanceled();
+		List<FunctionCoverage> coverages = FunctionCoverage.getFunctionCoverages(program, space, offsets, monitor);
+		Swing.runNow(() -> publisher.accept(coverages));
+	}
+}
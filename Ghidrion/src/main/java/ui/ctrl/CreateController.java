@@ -2,31 +2,46 @@ package ui.ctrl;
 
 import java.awt.Component;
 import java.awt.event.ActionEvent;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.stream.LongStream;
-
 import java.util.Set;
+import java.util.WeakHashMap;
+
 import javax.swing.JOptionPane;
 import javax.swing.JTable;
 
+import ghidra.framework.model.DomainFile;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.address.AddressFactory;
+import ghidra.program.model.listing.Program;
 import ghidra.util.Msg;
+import ghidra.util.task.TaskLauncher;
 import ghidrion.GhidrionPlugin;
 import model.Hook;
+import model.HookStore;
 import model.HookableFunction;
+import model.HookableFunctionStore;
 import model.MemoryEntry;
+import model.MemoryStore;
 import model.MorionInitTraceFile;
 import model.Hook.Mode;
 import ui.model.MemoryEntryTableModel;
+import util.observable.CollectionChange;
+import util.observable.Observable.Batch;
 import util.observable.ObservableSet;
 import util.yaml.FileHelper;
 import util.yaml.TraceFileToYamlConverter;
-import util.yaml.YamlConverterException;
+import util.yaml.TraceLoadingOptions;
 import util.yaml.YamlToTraceFileConverter;
 
 /**
@@ -37,27 +52,184 @@ public class CreateController {
 	private final GhidrionPlugin plugin;
 	private final MorionInitTraceFile traceFile;
 
-	private final Set<HookableFunction> allHookableFunctions = new HashSet<>();
+	private static final int MAX_CACHED_PROGRAMS = 8;
+
+	private final HookableFunctionStore hookableFunctions = new HookableFunctionStore();
+	private final Map<String, Set<HookableFunction>> hookableFunctionCache = new LinkedHashMap<>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Set<HookableFunction>> eldest) {
+			return size() > MAX_CACHED_PROGRAMS;
+		}
+	};
+	private final Map<Program, Long> unsavedProgramIds = new WeakHashMap<>(); // programs have identity equality
+	private long nextUnsavedProgramId = 0;
+	private Program shownProgram; // whose hookable functions are shown or being discovered
+	private HookableFunctionUpdater hookableFunctionUpdater; // of the shown program
+	private int discovery = 0; // incremented for every discovery, older results are dropped
+	private HookableFunctionDiscoveryTask discoveryTask; // of the latest discovery, null if none is running
+	private boolean discovered = false; // the shown functions are complete and have been kept up to date
 	private final ObservableSet<HookableFunction> currentlyHookableFunctions = new ObservableSet<>();
 
 	public CreateController(GhidrionPlugin plugin, MorionInitTraceFile traceFile) {
 		this.plugin = Objects.requireNonNull(plugin);
 		this.traceFile = Objects.requireNonNull(traceFile);
 
-		plugin.addProgramOpenendListener(p -> {
-			allHookableFunctions.clear();
-			allHookableFunctions.addAll(HookableFunction.getHookableFunctions(p));
-			traceFile.getHooks().clear(); // trigger update of lists
+		plugin.addProgramOpenendListener(this::showHookableFunctions);
+		hookableFunctions.addChangeObserver(this::updateCurrentlyHookableFunctions);
+		traceFile.getHooks().addChangeObserver(this::updateHookableFunctions);
+	}
+
+	/**
+	 * Shows the hookable functions of @param program and keeps them up to date
+	 * with a {@link HookableFunctionUpdater} while it is shown. They are
+	 * discovered in a background {@link HookableFunctionDiscoveryTask}, unless
+	 * they are cached for the same state of @param program.
+	 */
+	private void showHookableFunctions(Program program) {
+		if (shownProgram != null) {
+			shownProgram.removeListener(hookableFunctionUpdater);
+			if (discovered)
+				hookableFunctionCache.put(getCacheKey(shownProgram), new HashSet<>(hookableFunctions));
+		}
+		shownProgram = program;
+		hookableFunctionUpdater = new HookableFunctionUpdater(program, hookableFunctions,
+				() -> discoverHookableFunctions(program));
+		program.addListener(hookableFunctionUpdater);
+
+		Set<HookableFunction> cached = hookableFunctionCache.get(getCacheKey(program));
+		if (cached != null) {
+			cancelDiscovery();
+			discovered = true;
+			hookableFunctions.updateContent(cached);
+			return;
+		}
+		hookableFunctions.clear();
+		discoverHookableFunctions(program);
+	}
+
+	/**
+	 * Discovers all hookable functions of the shown @param program. Changes of
+	 * @param program while they are discovered are applied afterwards. If the
+	 * discovery is cancelled or fails, the functions found so far stay shown
+	 * without being cached, and they are discovered again the next time
+	 * @param program is shown or changes in a way that requires a full
+	 * discovery.
+	 */
+	private void discoverHookableFunctions(Program program) {
+		cancelDiscovery();
+		int current = discovery;
+		discovered = false;
+		String key = getCacheKey(program);
+		HookableFunctionUpdater updater = hookableFunctionUpdater;
+		updater.discoveryStarted();
+		discoveryTask = new HookableFunctionDiscoveryTask(program, functions -> {
+			hookableFunctionCache.put(key, functions);
+			if (current != discovery)
+				return;
+			discoveryTask = null;
+			discovered = true;
+			hookableFunctions.updateContent(functions);
+			updater.discoveryFinished();
+		}, () -> {
+			if (current != discovery)
+				return;
+			discoveryTask = null;
+			updater.discoveryFinished();
 		});
-		traceFile.getHooks().addObserver(alreadyHooked -> {
-			currentlyHookableFunctions.replaceContent(allHookableFunctions
+		plugin.getTool().execute(discoveryTask);
+	}
+
+	/**
+	 * Stops keeping the hookable functions of the shown program up to date and
+	 * cancels a running discovery. To be called when the plugin is disposed.
+	 */
+	public void dispose() {
+		if (shownProgram != null) {
+			shownProgram.removeListener(hookableFunctionUpdater);
+			shownProgram = null;
+			hookableFunctionUpdater = null;
+		}
+		cancelDiscovery();
+	}
+
+	/**
+	 * Cancels the running discovery, if any, and drops its result.
+	 */
+	private void cancelDiscovery() {
+		discovery++;
+		if (discoveryTask != null) {
+			discoveryTask.cancel();
+			discoveryTask = null;
+		}
+	}
+
+	/**
+	 * Programs in a project are identified by their file, which is reopened as a
+	 * different {@link Program} instance, and its last modification. Programs
+	 * that haven't been saved yet are identified by their instance. Changes since
+	 * opening the program are covered by the modification number.
+	 */
+	private String getCacheKey(Program program) {
+		DomainFile file = program.getDomainFile();
+		String id = file == null || file.getFileID() == null
+				? "unsaved#" + unsavedProgramIds.computeIfAbsent(program, p -> nextUnsavedProgramId++)
+				: file.getFileID() + "@" + file.getLastModifiedTime();
+		return id + "#" + program.getModificationNumber();
+	}
+
+	/**
+	 * Applies the added and removed hookable functions to the functions without
+	 * a hook.
+	 */
+	private void updateCurrentlyHookableFunctions(CollectionChange<HookableFunction> change) {
+		if (change.isReplacedAll()) {
+			updateHookableFunctions(CollectionChange.replacedAll());
+			return;
+		}
+		HookStore hooks = traceFile.getHooks();
+		try (Batch b = currentlyHookableFunctions.batch()) {
+			currentlyHookableFunctions.removeAll(change.getRemoved());
+			currentlyHookableFunctions.addAll(change.getAdded()
 					.stream()
-					.filter(e -> !alreadyHooked
-							.stream()
-							.map(nH -> nH.getEntryAddress())
-							.anyMatch(nH -> nH.equals(e.getEntryAddress())))
+					.filter(function -> !hooks.isHooked(function.getEntryAddress()))
 					.toList());
-		});
+		}
+	}
+
+	/**
+	 * Keeps the functions without a hook up to date. Only the functions at the
+	 * entry addresses of the added and removed hooks are looked up in the
+	 * {@link model.HookStore}, in time proportional to the change. If all hooks
+	 * have been replaced, all functions are checked once.
+	 */
+	private void updateHookableFunctions(CollectionChange<Hook> change) {
+		HookStore hooks = traceFile.getHooks();
+		if (change.isReplacedAll()) {
+			List<HookableFunction> unhooked = new ArrayList<>();
+			for (HookableFunction function : hookableFunctions)
+				if (!hooks.isHooked(function.getEntryAddress()))
+					unhooked.add(function);
+			currentlyHookableFunctions.replaceContent(unhooked);
+			return;
+		}
+
+		Set<Address> changedAddresses = new HashSet<>();
+		change.getRemoved().forEach(hook -> changedAddresses.add(hook.getEntryAddress()));
+		change.getAdded().forEach(hook -> changedAddresses.add(hook.getEntryAddress()));
+		List<HookableFunction> unhooked = new ArrayList<>();
+		List<HookableFunction> hooked = new ArrayList<>();
+		for (Address address : changedAddresses) {
+			Set<HookableFunction> functions = hookableFunctions.getFunctionsAt(address);
+			if (hooks.isHooked(address))
+				hooked.addAll(functions);
+			else
+				unhooked.addAll(functions);
+		}
+		// functions that already are (un)hooked are not reported as changed
+		try (Batch b = currentlyHookableFunctions.batch()) {
+			currentlyHookableFunctions.removeAll(hooked);
+			currentlyHookableFunctions.addAll(unhooked);
+		}
 	}
 
 	public GhidrionPlugin getPlugin() {
@@ -71,9 +243,10 @@ public class CreateController {
 	/**
 	 * Reads a YAML Morion trace file from disk after displaying a warning message
 	 * to the user.
-	 * If the user confirms the operation, the current {@link MorionInitTraceFile}
-	 * is cleared
-	 * and converted using {@link util.yaml.YamlToTraceFileConverter}.
+	 * If the user confirms the operation, the file is converted using
+	 * {@link util.yaml.YamlToTraceFileConverter} in a background
+	 * {@link TraceFileLoadTask} and replaces the current
+	 * {@link MorionInitTraceFile} once it has been loaded successfully.
 	 *
 	 * @param parent the parent component used for displaying dialog boxes
 	 */
@@ -86,39 +259,40 @@ public class CreateController {
 			return;
 		}
 
+		File file;
 		try {
-			YamlToTraceFileConverter.toInitTraceFile(traceFile, FileHelper.getFileStreamToLoad(parent),
-					plugin.getCurrentProgram().getAddressFactory());
-		} catch (YamlConverterException e) {
-			if (e.getCause() != null) {
-				Msg.showError(this, parent, e.getTitle(), e.getMessage(), e.getCause());
-			} else {
-				Msg.showError(this, parent, e.getTitle(), e.getMessage());
-			}
+			file = FileHelper.chooseFile(parent);
 		} catch (TraceFileNotFoundException e) {
 			return;
 		}
+
+		AddressFactory addressFactory = plugin.getCurrentProgram().getAddressFactory();
+		TraceLoadingOptions options = plugin.getTraceLoadingOptions();
+		new TaskLauncher(new TraceFileLoadTask<MorionInitTraceFile>(file, parent, (yamlFile, monitor) -> {
+			MorionInitTraceFile loadedTraceFile = new MorionInitTraceFile();
+			YamlToTraceFileConverter.toInitTraceFile(loadedTraceFile, yamlFile, addressFactory, options,
+					monitor);
+			return loadedTraceFile;
+		}, traceFile::replaceContent), parent);
 	}
 
 	/**
 	 * Writes the contents of a {@link MorionInitTraceFile} to a YAML file selected
 	 * by the user.
-	 * The trace file is converted to YAML format using
+	 * The trace file is streamed to the file in YAML format using
 	 * {@link TraceFileToYamlConverter}.
 	 *
 	 * @param parent the parent component used for displaying dialog boxes
 	 */
 	public void writeTraceFile(Component parent) {
-		String content = TraceFileToYamlConverter.toYaml(traceFile);
 		File file;
 		try {
 			file = FileHelper.saveFile(parent);
 		} catch (TraceFileNotFoundException e) {
 			return;
 		}
-		try (FileOutputStream fos = new FileOutputStream(file)) {
-			fos.write(content.getBytes());
-			fos.close();
+		try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+			TraceFileToYamlConverter.toYaml(traceFile, out);
 		} catch (FileNotFoundException e1) {
 			e1.printStackTrace();
 		} catch (IOException e1) {
@@ -136,10 +310,6 @@ public class CreateController {
 		traceFile.clear();
 	}
 
-	private String padHexTo4Bytes(long i) {
-		return String.format("0x%8s", Long.toString(i, 16)).replace(' ', '0');
-	}
-
 	/**
 	 * Adds entries to the {@link MorionInitTraceFile}.
 	 * 
@@ -197,11 +367,8 @@ public class CreateController {
 						"End address has to be bigger or equal to start address.");
 				return;
 			} else
-				traceFile.getEntryMemory().updateAll(LongStream
-						.rangeClosed(startAddressLong, endAddressLong)
-						.mapToObj(i -> new MemoryEntry(padHexTo4Bytes(i), value,
-								isSymbolic))
-						.toList());
+				traceFile.getEntryMemory().fill(startAddressLong, endAddressLong,
+						(byte) Integer.parseInt(value.substring(2), 16), isSymbolic);
 		} catch (NumberFormatException e) {
 			Msg.showError(this, component, "Illegal address value", "Addresses are not a hex value.");
 		}
@@ -210,17 +377,13 @@ public class CreateController {
 	private void spreadMemoryValue(String startAddress, String value, boolean isSymbolic, Component component) {
 		try {
 			long startAddressLong = Long.parseLong(startAddress.substring(2), 16);
-			Set<MemoryEntry> entriesToAdd = new HashSet<>();
 			String e = value.substring(2);
-			while (!e.isEmpty()) {
-				String startAddressToAdd = padHexTo4Bytes(startAddressLong);
-				int charsToAdd = e.length() >= 2 ? 2 : 1;
-				String valueToAdd = "0x" + e.substring(0, charsToAdd);
-				entriesToAdd.add(new MemoryEntry(startAddressToAdd, valueToAdd, isSymbolic));
-				startAddressLong++;
-				e = e.substring(charsToAdd);
+			byte[] valuesToAdd = new byte[(e.length() + 1) / 2];
+			for (int i = 0; i < valuesToAdd.length; i++) {
+				int charsToAdd = Math.min(2, e.length() - 2 * i);
+				valuesToAdd[i] = (byte) Integer.parseInt(e.substring(2 * i, 2 * i + charsToAdd), 16);
 			}
-			traceFile.getEntryMemory().updateAll(entriesToAdd);
+			traceFile.getEntryMemory().write(startAddressLong, valuesToAdd, isSymbolic);
 		} catch (NumberFormatException e) {
 			Msg.showError(this, component, "Illegal address value", "Addresses are not a hex value.");
 		}
@@ -234,9 +397,17 @@ public class CreateController {
 	 * @param tableMemory the JTable containing the memory entries
 	 */
 	public void removeAllEntryMemory(JTable tableMemory) {
-		MemoryEntryTableModel model = (MemoryEntryTableModel) tableMemory.getModel();
-		List<MemoryEntry> toDelete = model.getElementsAtRowIndices(tableMemory.getSelectedRows());
-		traceFile.getEntryMemory().removeAll(toDelete);
+		// Rows are in address order, so consecutive rows can be removed as one range
+		int[] rows = tableMemory.getSelectedRows();
+		MemoryStore memory = traceFile.getEntryMemory().getStore();
+		List<long[]> ranges = new ArrayList<>();
+		for (int first = 0, last = 0; first < rows.length; first = ++last) {
+			while (last + 1 < rows.length && rows[last + 1] == rows[last] + 1)
+				last++;
+			ranges.add(new long[] { memory.getAddress(rows[first]), memory.getAddress(rows[last]) });
+		}
+		traceFile.getEntryMemory().batch(
+				() -> ranges.forEach(range -> traceFile.getEntryMemory().removeRange(range[0], range[1])));
 	}
 
 	/**
@@ -2,16 +2,24 @@ package ui.ctrl;
 
 import java.awt.Color;
 import java.awt.Component;
+import java.io.File;
 import java.util.Objects;
 
 import javax.swing.JColorChooser;
 
-import ghidra.util.Msg;
+import ghidra.app.services.GoToService;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.address.AddressFactory;
+import ghidra.program.model.listing.Program;
+import ghidra.util.Swing;
+import ghidra.util.task.TaskLauncher;
 import ghidrion.GhidrionPlugin;
+import model.FunctionCoverage;
 import model.MorionTraceFile;
 import util.observable.ObservableColor;
+import util.observable.ObservableSet;
 import util.yaml.FileHelper;
-import util.yaml.YamlConverterException;
+import util.yaml.TraceLoadingOptions;
 import util.yaml.YamlToTraceFileConverter;
 
 /**
@@ -22,17 +30,69 @@ public class DisplayController {
 	private final GhidrionPlugin plugin;
 	private final MorionTraceFile traceFile = new MorionTraceFile();
 	private final ObservableColor traceColor = new ObservableColor(Color.GREEN);
+	private final ObservableSet<FunctionCoverage> functionCoverages = new ObservableSet<>();
+	private boolean coverageReportScheduled = false;
+	private int coverageReport = 0; // incremented for every report, older results are dropped
+	private CoverageReportTask coverageReportTask; // of the latest report, null if none has been started
 
 	public DisplayController(GhidrionPlugin plugin) {
 		this.plugin = Objects.requireNonNull(plugin);
 		traceFile.getInstructions().addObserver(e -> colorTraceInListing());
-		traceColor.addObserver(e -> colorTraceInListing());
+		traceFile.getInstructions().addObserver(e -> scheduleCoverageReport());
+		traceColor.addObserver(plugin.colorizerScript::recolor);
 	}
 
 	private void colorTraceInListing() {
 		plugin.colorizerScript.colorize(traceFile, traceColor.getColor());
 	}
 
+	/**
+	 * Changes of the same event are reported at once.
+	 */
+	private void scheduleCoverageReport() {
+		if (coverageReportScheduled)
+			return;
+		coverageReportScheduled = true;
+		Swing.runLater(() -> {
+			coverageReportScheduled = false;
+			reportCoverage();
+		});
+	}
+
+	/**
+	 * Computes the coverage of the functions touched by the trace in a background
+	 * {@link CoverageReportTask} and replaces the reported coverages with it. A
+	 * report that is still running is cancelled first.
+	 */
+	private void reportCoverage() {
+		int current = ++coverageReport;
+		if (coverageReportTask != null) {
+			coverageReportTask.cancel();
+			coverageReportTask = null;
+		}
+		Program program = plugin.getCurrentProgram();
+		if (program == null || traceFile.getInstructions().isEmpty()) {
+			functionCoverages.clear();
+			return;
+		}
+		coverageReportTask = new CoverageReportTask(program, traceFile.getInstructions(), coverages -> {
+			if (current != coverageReport)
+				return;
+			coverageReportTask = null;
+			functionCoverages.replaceContent(coverages);
+		});
+		plugin.getTool().execute(coverageReportTask);
+	}
+
+	/**
+	 * Navigates the listing to @param address.
+	 */
+	public void goTo(Address address) {
+		GoToService goToService = plugin.getTool().getService(GoToService.class);
+		if (goToService != null)
+			goToService.goTo(address);
+	}
+
 	public void clearTrace() {
 		traceFile.clear();
 		plugin.colorizerScript.decolorize();
@@ -52,19 +112,26 @@ public class DisplayController {
 
 	/**
 	 * Displays a popup for the user to choose a new trace file to load and display.
+	 * The file is loaded in a background {@link TraceFileLoadTask}, the currently
+	 * displayed trace is only replaced once loading succeeded.
 	 * 
 	 * @param component to use for popups
 	 */
 	public void loadTraceFile(Component component) {
+		File file;
 		try {
-			YamlToTraceFileConverter.toTraceFile(traceFile, FileHelper.getFileStreamToLoad(component),
-					plugin.getCurrentProgram().getAddressFactory());
+			file = FileHelper.chooseFile(component);
 		} catch (TraceFileNotFoundException ex) {
 			return;
-		} catch (YamlConverterException ex) {
-			Msg.showError(component, component, ex.getTitle(), ex.getMessage(), ex);
-			ex.printStackTrace();
 		}
+
+		AddressFactory addressFactory = plugin.getCurrentProgram().getAddressFactory();
+		TraceLoadingOptions options = plugin.getTraceLoadingOptions();
+		new TaskLauncher(new TraceFileLoadTask<MorionTraceFile>(file, component, (yamlFile, monitor) -> {
+			MorionTraceFile loadedTraceFile = new MorionTraceFile();
+			YamlToTraceFileConverter.toTraceFile(loadedTraceFile, yamlFile, addressFactory, options, monitor);
+			return loadedTraceFile;
+		}, traceFile::replaceContent), component);
 	}
 
 	public MorionTraceFile getTraceFile() {
@@ -74,4 +141,11 @@ public class DisplayController {
 	public ObservableColor getTraceColor() {
 		return traceColor;
 	}
+
+	/**
+	 * @return the coverage of the functions touched by the displayed trace
+	 */
+	public ObservableSet<FunctionCoverage> getFunctionCoverages() {
+		return functionCoverages;
+	}
 }
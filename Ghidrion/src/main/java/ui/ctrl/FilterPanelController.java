@@ -3,13 +3,22 @@ package ui.ctrl;
 import java.awt.Color;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
 import javax.swing.DefaultListModel;
+import javax.swing.Timer;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.text.BadLocationException;
@@ -18,18 +27,60 @@ import javax.swing.text.Highlighter;
 import javax.swing.text.PlainDocument;
 import javax.swing.text.DefaultHighlighter.DefaultHighlightPainter;
 
-import util.observable.ObservableList;
+import ghidra.util.Msg;
+import ghidra.util.Swing;
+import util.collection.NGramIndex;
+import util.observable.CollectionChange;
+import util.observable.ObservableSet;
+import util.observable.Observable.Batch;
 
 /**
  * Controller for {@link ui.view.FilterPanel}.
+ * 
+ * The input elements are grouped by their display text. Each text is matched
+ * against the filter once, and the selection in the list selects whole groups.
+ * Changes of the input, the filter or the selection therefore only touch the
+ * groups whose elements enter or leave the output, which is reported to its
+ * change observers as one {@link CollectionChange}. Connected filters (see
+ * {@link ui.view.FilterPanel#filterFrom(ObservableSet)}) thus form an
+ * incremental cascade.
+ * 
+ * Keystrokes in the filter text field are debounced, the filter is then
+ * compiled once and matched against the display texts on a background thread.
+ * A filter run that is superseded by a new filter is cancelled, only the result
+ * of the latest run is applied. In literal search mode, the texts are also
+ * indexed by a {@link NGramIndex}, so filters without regex metacharacters are
+ * looked up in the index instead of matching every text.
  */
-public class FilterPanelController<E> {
+public class FilterPanelController<E extends Comparable<E>> {
+    private static final int FILTER_DELAY_MS = 150; // keystrokes within this delay are filtered at once
+    private static final int MAX_LIST_CHANGE = 64; // larger changes of the list are applied by refilling it
+    private static final int CANCEL_CHECK_INTERVAL = 1024; // texts matched between checks for cancellation
+    private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+    private static final ExecutorService FILTER_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Ghidrion filter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final Function<E, String> displayMapper;
     private final DefaultListModel<String> listModel;
     private final PlainDocument filterDocument;
     private final Highlighter filterHighlighter;
-    private final List<E> inputElements = new ArrayList<>();
-    private final ObservableList<E> outputList = new ObservableList<>();
+    private final boolean literalSearch;
+    private final Timer filterTimer = new Timer(FILTER_DELAY_MS, e -> filterChange());
+    private final Map<E, String> inputTexts = new HashMap<>(); // display text of each input element
+    private final Map<String, Set<E>> groups = new HashMap<>(); // input elements by display text
+    private int groupsVersion = 0; // incremented whenever a group is added or removed
+    private IndexedTexts indexedTexts = null; // only accessed on the filter thread
+    private Set<String> matchingTexts = new HashSet<>(); // display texts matching the filter, shown in the list
+    private Set<String> selectedTexts = new HashSet<>();
+    private Pattern filter = Pattern.compile("");
+    private Future<?> runningFilter = null;
+    private Set<String> pendingTexts = null; // added while a filter run is running, null if none is running
+    private int generation = 0; // incremented for every filter run, older results are dropped
+    private boolean updatingList = false;
+    private final ObservableSet<E> output = new ObservableSet<>();
     private final DefaultHighlightPainter highlighter = new DefaultHighlighter.DefaultHighlightPainter(
             Color.RED);
     private Object highlight = null;
@@ -40,13 +91,17 @@ public class FilterPanelController<E> {
      * @param filterDocument    Document in the filter text field
      * @param filterHighlighter Highlighter of the filter text field, used to
      *                          display illegal regex
+     * @param literalSearch     whether filters without regex metacharacters are
+     *                          looked up in an index of the display texts
      */
     public FilterPanelController(Function<E, String> displayMapper, DefaultListModel<String> listModel,
-            PlainDocument filterDocument, Highlighter filterHighlighter) {
+            PlainDocument filterDocument, Highlighter filterHighlighter, boolean literalSearch) {
         this.displayMapper = Objects.requireNonNull(displayMapper);
+        this.literalSearch = literalSearch;
         this.listModel = Objects.requireNonNull(listModel);
         this.filterHighlighter = Objects.requireNonNull(filterHighlighter);
         this.filterDocument = Objects.requireNonNull(filterDocument);
+        filterTimer.setRepeats(false);
         addFilterChangeListener();
     }
 
@@ -54,17 +109,17 @@ public class FilterPanelController<E> {
         filterDocument.addDocumentListener(new DocumentListener() {
             @Override
             public void insertUpdate(DocumentEvent e) {
-                filterChange();
+                filterTimer.restart();
             }
 
             @Override
             public void removeUpdate(DocumentEvent e) {
-                filterChange();
+                filterTimer.restart();
             }
 
             @Override
             public void changedUpdate(DocumentEvent e) {
-                filterChange();
+                filterTimer.restart();
             }
         });
     }
@@ -78,77 +133,323 @@ public class FilterPanelController<E> {
         }
     }
 
-    private boolean isFilterValid() {
+    /**
+     * @return the compiled filter or {@code null} if it isn't a valid regex
+     */
+    private Pattern compileFilter() {
         try {
-            Pattern.compile(getFilterText());
+            return Pattern.compile(getFilterText());
         } catch (PatternSyntaxException e) {
-            return false;
+            return null;
         }
-        return true;
     }
 
     private void filterChange() {
-        boolean isFilterValid = isFilterValid();
+        Pattern newFilter = compileFilter();
         try {
-            if (!isFilterValid)
-                highlight = filterHighlighter.addHighlight(0, filterDocument.getLength(), highlighter);
-            else if (highlight != null)
+            if (highlight != null) {
                 filterHighlighter.removeHighlight(highlight);
+                highlight = null;
+            }
+            if (newFilter == null)
+                highlight = filterHighlighter.addHighlight(0, filterDocument.getLength(), highlighter);
         } catch (BadLocationException e) {
             e.printStackTrace();
         }
 
-        if (isFilterValid) {
-            updateDisplay();
-            updateOutput();
+        if (newFilter != null) {
+            filter = newFilter;
+            startFiltering();
         }
     }
 
-    private boolean filterElement(E e) {
-        return Pattern.compile(getFilterText()).matcher(displayMapper.apply(e)).find();
-    }
-
     /**
+     * Only the elements not already present are added and only the missing
+     * elements are removed.
+     * 
      * @param elements All elements that should now be filtered from.
      */
     public void updateElements(Collection<E> elements) {
-        inputElements.clear();
-        inputElements.addAll(elements);
-        updateDisplay();
-        updateOutput();
+        Set<E> newInput = new HashSet<>(elements);
+        List<E> removed = new ArrayList<>();
+        for (E e : inputTexts.keySet())
+            if (!newInput.contains(e))
+                removed.add(e);
+        newInput.removeAll(inputTexts.keySet());
+        updateElements(removed, newInput);
+    }
+
+    /**
+     * Removes @param removed from and adds @param added to the elements that are
+     * filtered from. Takes time proportional to the number of changed elements.
+     */
+    public void updateElements(Collection<E> removed, Collection<E> added) {
+        List<E> outputRemoved = new ArrayList<>();
+        List<E> outputAdded = new ArrayList<>();
+        List<String> listRemoved = new ArrayList<>();
+        List<String> listAdded = new ArrayList<>();
+        boolean wasSelecting = !selectedTexts.isEmpty();
+        for (E e : removed) {
+            String text = inputTexts.remove(e);
+            if (text == null)
+                continue;
+            if (passes(text))
+                outputRemoved.add(e);
+            Set<E> group = groups.get(text);
+            group.remove(e);
+            if (group.isEmpty() && removeGroup(text))
+                listRemoved.add(text);
+        }
+        if (wasSelecting && selectedTexts.isEmpty()) {
+            // the last selected group has been removed, so all matching groups pass now
+            for (String text : matchingTexts)
+                outputAdded.addAll(groups.get(text));
+        }
+        for (E e : added) {
+            if (inputTexts.containsKey(e))
+                continue;
+            String text = displayMapper.apply(e);
+            inputTexts.put(e, text);
+            Set<E> group = groups.get(text);
+            if (group == null) {
+                group = new HashSet<>();
+                groups.put(text, group);
+                if (addGroup(text))
+                    listAdded.add(text);
+            }
+            group.add(e);
+            if (passes(text))
+                outputAdded.add(e);
+        }
+        if (listRemoved.size() + listAdded.size() > MAX_LIST_CHANGE) {
+            // refilling the list clears the selection, so all matching groups pass
+            if (!selectedTexts.isEmpty())
+                for (String text : matchingTexts)
+                    if (!selectedTexts.contains(text))
+                        outputAdded.addAll(groups.get(text));
+            selectedTexts = new HashSet<>();
+            refillList();
+        } else {
+            updateList(() -> {
+                listRemoved.forEach(text -> listModel.remove(listIndex(text)));
+                listAdded.forEach(text -> listModel.add(listIndex(text), text));
+            });
+        }
+        updateOutput(outputRemoved, outputAdded);
+    }
+
+    /**
+     * @return {@code true} if the text of the new group matches the filter
+     */
+    private boolean addGroup(String text) {
+        groupsVersion++;
+        if (pendingTexts != null)
+            pendingTexts.add(text); // matched again once the running filter run is applied
+        if (!filter.matcher(text).find())
+            return false;
+        matchingTexts.add(text);
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the text of the removed group matched the filter
+     */
+    private boolean removeGroup(String text) {
+        groupsVersion++;
+        groups.remove(text);
+        selectedTexts.remove(text);
+        return matchingTexts.remove(text);
+    }
+
+    private void refillList() {
+        List<String> listContent = new ArrayList<>(matchingTexts);
+        listContent.sort(null);
+        updateList(() -> {
+            listModel.clear();
+            listModel.addAll(listContent);
+        });
+    }
+
+    /**
+     * @return the index of @param text in the sorted list, or where it would be
+     *         inserted
+     */
+    private int listIndex(String text) {
+        int low = 0;
+        int high = listModel.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (listModel.get(middle).compareTo(text) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
     }
 
-    public ObservableList<E> getOutputList() {
-        return outputList;
+    private boolean passes(String text) {
+        return matchingTexts.contains(text) && (selectedTexts.isEmpty() || selectedTexts.contains(text));
     }
 
-    private void updateDisplay() {
-        listModel.clear();
-        listModel.addAll(inputElements
-                .stream()
-                .filter(this::filterElement)
-                .map(displayMapper)
-                .distinct()
-                .sorted()
-                .toList());
+    /**
+     * @return the elements passing the filter and selection. Must not be
+     *         modified, observers are notified with the change of each update.
+     */
+    public ObservableSet<E> getOutput() {
+        return output;
+    }
+
+    private void updateOutput(Collection<E> removed, Collection<E> added) {
+        if (removed.isEmpty() && added.isEmpty())
+            return;
+        try (Batch b = output.batch()) {
+            output.removeAll(removed);
+            output.addAll(added);
+        }
     }
 
-    private void updateOutput() {
-        updateSelectedElements(List.of());
+    /**
+     * Changes to the list model select nothing, so the selection is only
+     * updated by the caller.
+     */
+    private void updateList(Runnable change) {
+        updatingList = true;
+        try {
+            change.run();
+        } finally {
+            updatingList = false;
+        }
     }
 
     /**
+     * Cancels the running filter run and matches the current display texts on
+     * the background thread.
+     */
+    private void startFiltering() {
+        if (runningFilter != null)
+            runningFilter.cancel(true);
+        int current = ++generation;
+        pendingTexts = new HashSet<>();
+        List<String> texts = new ArrayList<>(groups.keySet());
+        int version = groupsVersion;
+        Pattern pattern = filter;
+        runningFilter = FILTER_EXECUTOR.submit(() -> {
+            try {
+                Set<String> matches = match(texts, version, pattern);
+                if (matches != null)
+                    Swing.runLater(() -> applyFilter(current, matches));
+            } catch (RuntimeException e) {
+                Msg.error(this, "Failed to filter elements", e);
+            }
+        });
+    }
+
+    /**
+     * @return the @param texts matching @param pattern or {@code null} if
+     *         cancelled
+     */
+    private Set<String> match(List<String> texts, int version, Pattern pattern) {
+        Set<String> matches = new HashSet<>();
+        String regex = pattern.pattern();
+        if (regex.isEmpty()) {
+            matches.addAll(texts);
+        } else if (literalSearch && isLiteral(regex)) {
+            if (indexedTexts == null || indexedTexts.version != version)
+                indexedTexts = new IndexedTexts(texts, version);
+            for (int i : indexedTexts.index.search(regex))
+                matches.add(indexedTexts.texts.get(i));
+        } else {
+            Matcher matcher = pattern.matcher("");
+            for (int i = 0; i < texts.size(); i++) {
+                if (i % CANCEL_CHECK_INTERVAL == 0 && Thread.currentThread().isInterrupted())
+                    return null;
+                if (matcher.reset(texts.get(i)).find())
+                    matches.add(texts.get(i));
+            }
+        }
+        return Thread.currentThread().isInterrupted() ? null : matches;
+    }
+
+    private static boolean isLiteral(String regex) {
+        for (int i = 0; i < regex.length(); i++)
+            if (REGEX_METACHARACTERS.indexOf(regex.charAt(i)) >= 0)
+                return false;
+        return true;
+    }
+
+    /**
+     * Replaces the matching texts with @param matches, which are complemented by
+     * the texts added during the filter run, and clears the selection. Only the
+     * groups whose texts pass before or after are updated in the output.
+     */
+    private void applyFilter(int appliedGeneration, Set<String> matches) {
+        if (appliedGeneration != generation)
+            return;
+        runningFilter = null;
+        Set<String> newMatchingTexts = new HashSet<>();
+        for (String text : matches)
+            if (groups.containsKey(text))
+                newMatchingTexts.add(text);
+        for (String text : pendingTexts)
+            if (groups.containsKey(text) && filter.matcher(text).find())
+                newMatchingTexts.add(text);
+        pendingTexts = null;
+
+        List<E> outputRemoved = new ArrayList<>();
+        List<E> outputAdded = new ArrayList<>();
+        for (String text : selectedTexts.isEmpty() ? matchingTexts : selectedTexts)
+            if (passes(text) && !newMatchingTexts.contains(text))
+                outputRemoved.addAll(groups.get(text));
+        for (String text : newMatchingTexts)
+            if (!passes(text))
+                outputAdded.addAll(groups.get(text));
+        matchingTexts = newMatchingTexts;
+        selectedTexts = new HashSet<>();
+        refillList();
+        updateOutput(outputRemoved, outputAdded);
+    }
+
+    /**
+     * Only the groups whose selection changed are updated in the output.
+     * 
      * @param selectedElements that should now be selected. If empty, all elements
      *                         get passed to the output.
      */
     public void updateSelectedElements(List<String> selectedElements) {
-        if (selectedElements.isEmpty())
-            outputList.replaceContent(inputElements.stream().filter(this::filterElement).toList());
-        else
-            outputList.replaceContent(inputElements
-                    .stream()
-                    .filter(this::filterElement)
-                    .filter(e -> selectedElements.contains(displayMapper.apply(e)))
-                    .toList());
+        if (updatingList)
+            return;
+        Set<String> newSelectedTexts = new HashSet<>(selectedElements);
+        newSelectedTexts.retainAll(matchingTexts);
+        Set<String> affected = new HashSet<>(selectedTexts.isEmpty() ? matchingTexts : selectedTexts);
+        affected.addAll(newSelectedTexts.isEmpty() ? matchingTexts : newSelectedTexts);
+
+        List<E> outputRemoved = new ArrayList<>();
+        List<E> outputAdded = new ArrayList<>();
+        boolean newSelecting = !newSelectedTexts.isEmpty();
+        for (String text : affected) {
+            boolean passed = passes(text);
+            boolean willPass = !newSelecting || newSelectedTexts.contains(text);
+            if (passed && !willPass)
+                outputRemoved.addAll(groups.get(text));
+            else if (!passed && willPass)
+                outputAdded.addAll(groups.get(text));
+        }
+        selectedTexts = newSelectedTexts;
+        updateOutput(outputRemoved, outputAdded);
+    }
+
+    /**
+     * Distinct display texts indexed for literal search.
+     */
+    private static class IndexedTexts {
+        private final List<String> texts;
+        private final int version; // of the groups the texts belong to
+        private final NGramIndex index;
+
+        private IndexedTexts(List<String> texts, int version) {
+            this.texts = texts;
+            this.version = version;
+            this.index = new NGramIndex(texts);
+        }
     }
 }
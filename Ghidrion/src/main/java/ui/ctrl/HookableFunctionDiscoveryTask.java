@@ -0,0 +1,71 @@
+package ui.ctrl;
+
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import ghidra.program.model.listing.Program;
+import ghidra.util.Swing;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.Task;
+import ghidra.util.task.TaskMonitor;
+import model.HookableFunction;
+
+/**
+ * Discovers the hookable functions of a program in the background, see
+ * {@link HookableFunction#getHookableFunctions(Program, TaskMonitor)}. The
+ * functions are only handed to the publisher (on the Swing thread) if the
+ * discovery has not been cancelled. Otherwise the failure callback is run on
+ * the Swing thread instead. A task can be cancelled with {@link #cancel()}
+ * before it has started, too.
+ */
+public class HookableFunctionDiscoveryTask extends Task {
+	private final Program program;
+	private final Consumer<Set<HookableFunction>> publisher;
+	private final Runnable onFailure;
+	private volatile TaskMonitor monitor; // of the running task, null if it hasn't started yet
+	private volatile boolean cancelled = false;
+
+	/**
+	 * @param program   to discover the hookable functions of
+	 * @param publisher receives the discovered functions on the Swing thread
+	 * @param onFailure runs on the Swing thread if the discovery has been
+	 *                  cancelled or failed
+	 */
+	public HookableFunctionDiscoveryTask(Program program, Consumer<Set<HookableFunction>> publisher,
+			Runnable onFailure) {
+		super("Discovering hookable functions in " + program.getName(), true, true, false);
+		this.program = Objects.requireNonNull(program);
+		this.publisher = Objects.requireNonNull(publisher);
+		this.onFailure = Objects.requireNonNull(onFailure);
+	}
+
+	/**
+	 * Cancels the discovery, e.g. because it has been superseded by a newer one.
+	 */
+	@Override
+	public void cancel() {
+		cancelled = true;
+		TaskMonitor runningMonitor = monitor;
+		if (runningMonitor != null)
+			runningMonitor.cancel();
+		super.cancel();
+	}
+
+	@Override
+	public void run(TaskMonitor monitor) throws CancelledException {
+		this.monitor = monitor;
+		monitor.setMessage("Discovering hookable functions in " + program.getName());
+		Set<HookableFunction> functions;
+		try {
+			if (cancelled) // before it has been started
+				monitor.cancel();
+			monitor.checkCanceled();
+			functions = HookableFunction.getHookableFunctions(program, monitor);
+		} catch (CancelledException | RuntimeException e) {
+			Swing.runNow(onFailure);
+			throw e; // reported by the task framework
+		}
+		Swing.runNow(() -> publisher.accept(functions));
+	}
+}
@@ -0,0 +1,188 @@
+package ui.ctrl;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import ghidra.framework.model.DomainObject;
+import ghidra.framework.model.DomainObjectChangeRecord;
+import ghidra.framework.model.DomainObjectChangedEvent;
+import ghidra.framework.model.DomainObjectListener;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.listing.Function;
+import ghidra.program.model.listing.Program;
+import ghidra.program.model.symbol.Reference;
+import ghidra.program.util.ChangeManager;
+import ghidra.program.util.ProgramChangeRecord;
+import model.HookableFunction;
+import model.HookableFunctionStore;
+
+/**
+ * Keeps the {@link HookableFunctionStore} of a program up to date while the
+ * program changes, e.g. during auto analysis. Instead of discovering all
+ * functions again, only the call sites touched by the change records of an
+ * event are looked up with
+ * {@link HookableFunction#getHookableFunctionsAt(Program, Address)}, so
+ * observers of the store only receive the difference.
+ *
+ * Changes that may affect every call site, like changes of memory blocks or
+ * restoring the program (undo, redo), trigger a full discovery instead.
+ * Events are delivered on the Swing thread.
+ */
+public class HookableFunctionUpdater implements DomainObjectListener {
+	private final Program program;
+	private final HookableFunctionStore functions;
+	private final Runnable rediscover;
+	private Set<Address> pendingCallSites; // changed while a discovery is running, null if none is running
+
+	/**
+	 * @param program    to observe
+	 * @param functions  of @param program to keep up to date
+	 * @param rediscover starts a full discovery of the functions, which has to
+	 *                   cancel a running one and call
+	 *                   {@link #discoveryStarted()}
+	 */
+	public HookableFunctionUpdater(Program program, HookableFunctionStore functions, Runnable rediscover) {
+		this.program = Objects.requireNonNull(program);
+		this.functions = Objects.requireNonNull(functions);
+		this.rediscover = Objects.requireNonNull(rediscover);
+	}
+
+	/**
+	 * Call sites changing from now on are only updated once
+	 * {@link #discoveryFinished()} is called, as the discovered functions may not
+	 * contain these changes yet.
+	 */
+	public void discoveryStarted() {
+		pendingCallSites = new HashSet<>();
+	}
+
+	/**
+	 * Updates the call sites that changed while the discovered functions, which
+	 * have just been published to the store, have been discovered.
+	 */
+	public void discoveryFinished() {
+		Set<Address> callSites = pendingCallSites;
+		pendingCallSites = null;
+		if (callSites != null && !callSites.isEmpty())
+			update(callSites);
+	}
+
+	@Override
+	public void domainObjectChanged(DomainObjectChangedEvent event) {
+		Set<Address> callSites = new HashSet<>();
+		for (DomainObjectChangeRecord record : event)
+			if (!collectCallSites(record, callSites)) {
+				rediscover.run();
+				return;
+			}
+		if (callSites.isEmpty())
+			return;
+		if (pendingCallSites != null)
+			pendingCallSites.addAll(callSites); // updated once the running discovery is published
+		else
+			update(callSites);
+	}
+
+	private void update(Set<Address> callSites) {
+		List<HookableFunction> newFunctions = new ArrayList<>();
+		for (Address callSite : callSites)
+			newFunctions.addAll(HookableFunction.getHookableFunctionsAt(program, callSite));
+		functions.updateFunctionsAt(callSites, newFunctions);
+	}
+
+	/**
+	 * Adds the call sites whose hookable functions may have been changed by
+	 * @param record to @param callSites.
+	 *
+	 * @return {@code false} if the change may affect all call sites
+	 */
+	private boolean collectCallSites(DomainObjectChangeRecord record, Set<Address> callSites) {
+		switch (record.getEventType()) {
+			case DomainObject.DO_OBJECT_RESTORED:
+			case ChangeManager.DOCR_MEMORY_BLOCK_ADDED:
+			case ChangeManager.DOCR_MEMORY_BLOCK_REMOVED:
+			case ChangeManager.DOCR_MEMORY_BLOCK_CHANGED:
+			case ChangeManager.DOCR_MEMORY_BLOCK_MOVED:
+			case ChangeManager.DOCR_MEMORY_BLOCK_SPLIT:
+			case ChangeManager.DOCR_MEMORY_BLOCKS_JOINED:
+				return false;
+			default:
+				break;
+		}
+		if (!(record instanceof ProgramChangeRecord))
+			return true;
+		ProgramChangeRecord programRecord = (ProgramChangeRecord) record;
+		Address start = programRecord.getStart();
+		if (start == null)
+			return true;
+		switch (record.getEventType()) {
+			case ChangeManager.DOCR_MEM_REFERENCE_ADDED:
+			case ChangeManager.DOCR_MEM_REFERENCE_REMOVED:
+				callSites.add(getFromAddress(programRecord));
+				return true;
+			case ChangeManager.DOCR_FUNCTION_ADDED:
+			case ChangeManager.DOCR_FUNCTION_CHANGED:
+			case ChangeManager.DOCR_SYMBOL_RENAMED:
+				return collectCallers(start, callSites);
+			case ChangeManager.DOCR_FUNCTION_REMOVED:
+				// the thunks of a removed external function can't be looked up anymore
+				return !start.isExternalAddress() && collectCallers(start, callSites);
+			case ChangeManager.DOCR_CODE_ADDED:
+			case ChangeManager.DOCR_CODE_REMOVED:
+			case ChangeManager.DOCR_CODE_REPLACED:
+				collectCodeCallSites(start, programRecord.getEnd() == null ? start : programRecord.getEnd(),
+						callSites);
+				return true;
+			default:
+				return true;
+		}
+	}
+
+	private static Address getFromAddress(ProgramChangeRecord record) {
+		Object reference = record.getNewValue() != null ? record.getNewValue() : record.getOldValue();
+		return reference instanceof Reference ? ((Reference) reference).getFromAddress() : record.getStart();
+	}
+
+	/**
+	 * Adds the callers of the function at @param address and of all its thunks,
+	 * as their thunked external function may have changed. For an external
+	 * function, these are the callers of its thunks.
+	 *
+	 * @return {@code false} if an external function can't be looked up
+	 */
+	private boolean collectCallers(Address address, Set<Address> callSites) {
+		Function function = program.getFunctionManager().getFunctionAt(address);
+		if (function == null)
+			return !address.isExternalAddress();
+		if (!address.isExternalAddress())
+			collectReferencesTo(address, callSites);
+		Address[] thunkAddresses = function.getFunctionThunkAddresses(true);
+		if (thunkAddresses != null)
+			for (Address thunkAddress : thunkAddresses)
+				collectReferencesTo(thunkAddress, callSites);
+		return true;
+	}
+
+	private void collectReferencesTo(Address address, Set<Address> callSites) {
+		for (Reference reference : program.getReferenceManager().getReferencesTo(address))
+			if (!reference.isEntryPointReference())
+				callSites.add(reference.getFromAddress());
+	}
+
+	/**
+	 * Adds the known call sites from @param start to @param end, and the last
+	 * one before, as the instruction after it, where its functions leave, may
+	 * have changed. New call sites are added by their reference records.
+	 */
+	private void collectCodeCallSites(Address start, Address end, Set<Address> callSites) {
+		if (start.isExternalAddress() || start.compareTo(end) > 0)
+			return;
+		callSites.addAll(functions.getEntryAddresses(start, end));
+		Address before = functions.getEntryAddressBefore(start);
+		if (before != null)
+			callSites.add(before);
+	}
+}
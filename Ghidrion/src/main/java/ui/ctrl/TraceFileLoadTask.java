@@ -0,0 +1,74 @@
+package ui.ctrl;
+
+import java.awt.Component;
+import java.io.File;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import ghidra.util.Msg;
+import ghidra.util.Swing;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.Task;
+import ghidra.util.task.TaskMonitor;
+import model.MorionInitTraceFile;
+import util.yaml.YamlConverterException;
+
+/**
+ * Loads a trace file from disk in the background. The loaded trace file is
+ * only handed to the publisher (on the Swing thread) once it has been read
+ * completely, so a cancelled or failed load leaves the currently displayed
+ * trace file untouched.
+ */
+public class TraceFileLoadTask<T extends MorionInitTraceFile> extends Task {
+	private final File file;
+	private final Component parent;
+	private final TraceFileLoader<T> loader;
+	private final Consumer<T> publisher;
+
+	/**
+	 * @param file      to load
+	 * @param parent    used for displaying error messages
+	 * @param loader    converts the content of @param file to a trace file
+	 * @param publisher receives the loaded trace file on the Swing thread
+	 */
+	public TraceFileLoadTask(File file, Component parent, TraceFileLoader<T> loader, Consumer<T> publisher) {
+		super("Loading " + file.getName(), true, true, false);
+		this.file = Objects.requireNonNull(file);
+		this.parent = parent;
+		this.loader = Objects.requireNonNull(loader);
+		this.publisher = Objects.requireNonNull(publisher);
+	}
+
+	@Override
+	public void run(TaskMonitor monitor) throws CancelledException {
+		monitor.initialize(file.length());
+		try {
+			T traceFile = loader.load(file, monitor);
+			monitor.checkCanceled();
+			monitor.setMessage("Displaying " + file.getName());
+			Swing.runNow(() -> publisher.accept(traceFile));
+		} catch (YamlConverterException e) {
+			if (e.getCause() != null) {
+				Msg.showError(this, parent, e.getTitle(), e.getMessage(), e.getCause());
+			} else {
+				Msg.showError(this, parent, e.getTitle(), e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Converts a YAML file to a new trace file.
+	 */
+	@FunctionalInterface
+	public interface TraceFileLoader<T> {
+		/**
+		 * @param yamlFile to read the trace file from
+		 * @param monitor  to report progress to and check for cancellation
+		 * @return the loaded trace file
+		 * @throws YamlConverterException if @param yamlFile is not readable or its
+		 *                                content is invalid
+		 * @throws CancelledException     if @param monitor has been cancelled
+		 */
+		T load(File yamlFile, TaskMonitor monitor) throws YamlConverterException, CancelledException;
+	}
+}
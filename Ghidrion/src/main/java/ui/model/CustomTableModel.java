@@ -3,12 +3,17 @@ package ui.model;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.TableColumnModel;
 
+import util.collection.SortedIndex;
+import util.observable.CollectionChange;
 import util.observable.ObservableSet;
 
 /**
@@ -17,29 +22,171 @@ import util.observable.ObservableSet;
  * and objects.
  */
 public abstract class CustomTableModel<E extends Comparable<E>> extends AbstractTableModel {
-    private final List<E> elements = new ArrayList<>();
+    private static final int MIN_BULK_CHANGE = 64; // smaller changes are always reported row by row
+
+    private final SortedIndex<E> elements = new SortedIndex<>(Comparator.naturalOrder());
+    private final ObservableSet<E> source;
 
     public CustomTableModel(ObservableSet<E> elements) {
-        elements.addObserver(this::onChange);
+        this.source = elements;
+        this.elements.setAll(elements);
+        elements.addChangeObserver(this::onChange);
+    }
+
+    /**
+     * For subclasses that provide their rows themselves by overriding
+     * {@link CustomTableModel#getRowCount()} and
+     * {@link CustomTableModel#getElementAt(int)}.
+     */
+    protected CustomTableModel() {
+        this.source = null;
     }
 
-    private void onChange(Collection<E> newElements) {
-        this.elements.clear();
-        this.elements.addAll(newElements.stream().sorted().toList());
+    /**
+     * Applies the removed and added elements of @param change, unless the whole
+     * content has been replaced.
+     */
+    private void onChange(CollectionChange<E> change) {
+        if (change.isReplacedAll())
+            setRows(source);
+        else
+            updateRows(change.getRemoved(), change.getAdded());
+    }
+
+    /**
+     * Replaces all rows with the sorted @param rows, building the index at once.
+     */
+    protected void setRows(Collection<E> rows) {
+        elements.setAll(rows);
         fireTableDataChanged();
     }
 
+    /**
+     * Keeps the rows sorted by removing @param removed and inserting @param added
+     * in O(log n) each. Elements in both are replaced in place. Only the
+     * affected rows are reported to the table, so the selection and the scroll
+     * position are kept. If most rows have changed, the index is rebuilt at once
+     * and the table is told to reload all rows instead.
+     */
+    protected void updateRows(Collection<E> removed, Collection<E> added) {
+        int changed = removed.size() + added.size();
+        if (changed > MIN_BULK_CHANGE && changed > elements.size() / 2) {
+            Set<E> changedElements = new HashSet<>(removed);
+            changedElements.addAll(added);
+            List<E> rows = new ArrayList<>(elements.size() + added.size());
+            for (E e : elements)
+                if (!changedElements.contains(e))
+                    rows.add(e);
+            rows.addAll(added); // the new instances of replaced elements
+            setRows(rows);
+            return;
+        }
+
+        Set<E> toRemove = new HashSet<>(removed);
+        List<E> toReplace = new ArrayList<>();
+        List<E> toInsert = new ArrayList<>();
+        for (E e : added) {
+            if (toRemove.remove(e) && elements.contains(e))
+                toReplace.add(e);
+            else
+                toInsert.add(e);
+        }
+        replaceRows(toReplace);
+        removeRows(toRemove);
+        insertRows(toInsert);
+    }
+
+    /**
+     * Replaces rows in place and reports consecutive rows as one update.
+     */
+    private void replaceRows(List<E> replaced) {
+        replaced.sort(null);
+        int first = -1;
+        int last = -1;
+        for (E e : replaced) {
+            int i = elements.replace(e);
+            if (first < 0 || i != last + 1) {
+                if (first >= 0)
+                    fireTableRowsUpdated(first, last);
+                first = i;
+            }
+            last = i;
+        }
+        if (first >= 0)
+            fireTableRowsUpdated(first, last);
+    }
+
+    /**
+     * Removes rows from the bottom up, so consecutive rows can be reported as
+     * one deletion without shifting the indices of the rows above.
+     */
+    private void removeRows(Collection<E> removed) {
+        List<E> sorted = new ArrayList<>(removed);
+        sorted.sort(Comparator.reverseOrder());
+        int first = -1;
+        int last = -1;
+        for (E e : sorted) {
+            int i = elements.indexOf(e);
+            if (i < 0)
+                continue;
+            if (first < 0 || i != first - 1) {
+                if (first >= 0)
+                    fireTableRowsDeleted(first, last);
+                last = i;
+            }
+            first = i;
+            elements.removeElement(e);
+        }
+        if (first >= 0)
+            fireTableRowsDeleted(first, last);
+    }
+
+    /**
+     * Inserts rows from the top down and reports consecutive rows as one
+     * insertion.
+     */
+    private void insertRows(List<E> added) {
+        added.sort(null);
+        int first = -1;
+        int last = -1;
+        for (E e : added) {
+            if (elements.contains(e))
+                continue;
+            int i = elements.insertionIndex(e);
+            if (first < 0 || i != last + 1) {
+                if (first >= 0)
+                    fireTableRowsInserted(first, last);
+                first = i;
+            }
+            last = i;
+            elements.insert(e);
+        }
+        if (first >= 0)
+            fireTableRowsInserted(first, last);
+    }
+
     @Override
     public int getRowCount() {
         return elements.size();
     }
 
+    /**
+     * @return the rows in sorted order, with positional access in O(log n)
+     */
     protected List<E> getElements() {
         return elements;
     }
 
+    /**
+     * @param rowIndex of the element
+     * @return the element displayed in row @param rowIndex
+     */
+    protected E getElementAt(int rowIndex) {
+        return elements.get(rowIndex);
+    }
+
     public List<E> getElementsAtRowIndices(int[] is) {
-        return Arrays.stream(is).mapToObj(i -> elements.get(i)).collect(Collectors.toList());
+        return Arrays.stream(is).mapToObj(this::getElementAt).collect(Collectors.toList());
     }
 
     /**
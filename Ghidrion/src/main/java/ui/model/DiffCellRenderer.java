@@ -0,0 +1,50 @@
+package ui.model;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.util.Objects;
+
+import javax.swing.JTable;
+import javax.swing.table.DefaultTableCellRenderer;
+
+/**
+ * Colors the cells of a {@link DiffTableModel}. Like any
+ * {@link DefaultTableCellRenderer}, a single component is configured and
+ * returned for every painted cell.
+ * 
+ * Coloring scheme:
+ * <ul>
+ * <li>red name/address: either the entry or leave state has no value</li>
+ * <li>green name/address: entry and leave value differ</li>
+ * <li>blue value: symbolic</li>
+ * </ul>
+ */
+public class DiffCellRenderer extends DefaultTableCellRenderer {
+    private static final Color ERROR = new Color(0xa0, 0, 0);
+    private static final Color DIFF = new Color(0, 0xa0, 0);
+    private static final Color SYMBOLIC = new Color(0, 0, 0xa0);
+
+    private final DiffTableModel model;
+
+    public DiffCellRenderer(DiffTableModel model) {
+        this.model = Objects.requireNonNull(model);
+    }
+
+    @Override
+    public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus,
+            int row, int column) {
+        super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+        int modelRow = table.convertRowIndexToModel(row);
+        Color c = Color.BLACK;
+        if (column == 0 && model.isRowError(modelRow))
+            c = ERROR;
+        else if (column == 0 && model.isRowDiff(modelRow))
+            c = DIFF;
+        else if (column == 1 && model.isRowEntrySymbolic(modelRow))
+            c = SYMBOLIC;
+        else if (column == 2 && model.isRowLeaveSymbolic(modelRow))
+            c = SYMBOLIC;
+        setForeground(c);
+        return this;
+    }
+}
@@ -0,0 +1,36 @@
+package ui.model;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.table.TableModel;
+
+/**
+ * {@link TableModel} of a diff view, providing the status of each row for the
+ * {@link DiffCellRenderer}.
+ */
+public interface DiffTableModel extends TableModel {
+    /**
+     * Background thread shared by all diff views to calculate their diffs, so
+     * only one diff is calculated at a time.
+     */
+    ExecutorService DIFF_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Ghidrion diff");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @return {@code true} if entry and leave value differ
+     */
+    boolean isRowDiff(int rowIndex);
+
+    /**
+     * @return {@code true} if either the entry or leave state has no value
+     */
+    boolean isRowError(int rowIndex);
+
+    boolean isRowEntrySymbolic(int rowIndex);
+
+    boolean isRowLeaveSymbolic(int rowIndex);
+}
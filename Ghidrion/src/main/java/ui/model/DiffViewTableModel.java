@@ -1,63 +1,115 @@
 package ui.model;
 
-import java.awt.Color;
-import java.awt.Component;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
-import javax.swing.JLabel;
-import javax.swing.JTable;
-import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.TableColumnModel;
 
+import ghidra.util.Msg;
+import ghidra.util.Swing;
+import model.DiffEngine;
 import model.DiffEntry;
 import model.MemoryEntry;
+import util.observable.CollectionChange;
 import util.observable.ObservableSet;
 
 /**
  * {@link javax.swing.table.TableModel} to use in the diff view part of the
  * application. Observes entry and leave states and reactively calculates and
- * displays the diff.
+ * displays the diff using the {@link DiffEngine}.
  * 
- * Coloring scheme:
- * <ul>
- * <li>red: either the entry or leave state has no value</li>
- * <li>green name/address: entry and leave value differ</li>
- * <li>blue value: symbolic</li>
- * </ul>
+ * Cells are colored by the {@link DiffCellRenderer}.
  */
-public class DiffViewTableModel extends CustomTableModel<DiffEntry> {
+public class DiffViewTableModel extends CustomTableModel<DiffEntry> implements DiffTableModel {
+    private static final int MAX_INCREMENTAL_CHANGE = 10_000; // larger changes are diffed in the background
+
     private final ObservableSet<MemoryEntry> entry;
     private final ObservableSet<MemoryEntry> leave;
-    private final ObservableSet<DiffEntry> diff;
+    private int generation = 0; // incremented for every full diff, older results are dropped
+    private Set<String> pendingKeys; // changed while a full diff is running, null if none is running
 
     /**
-     * @param diff  for internal use only, is cleared in constructor.
+     * The states have to be modified on the Swing thread. Full diffs are
+     * calculated on a background thread and published on the Swing thread.
+     * 
      * @param entry values before trace from loaded YAML
      * @param leave values after trace from loaded YAML
      */
-    public DiffViewTableModel(
-            ObservableSet<DiffEntry> diff,
-            ObservableSet<MemoryEntry> entry,
-            ObservableSet<MemoryEntry> leave) {
-        super(diff);
-        diff.clear();
+    public DiffViewTableModel(ObservableSet<MemoryEntry> entry, ObservableSet<MemoryEntry> leave) {
         this.entry = Objects.requireNonNull(entry);
         this.leave = Objects.requireNonNull(leave);
-        this.diff = Objects.requireNonNull(diff);
-        entry.addObserver(e -> update());
-        leave.addObserver(e -> update());
+        entry.addChangeObserver(this::onChange);
+        leave.addChangeObserver(this::onChange);
+        recalculate();
     }
 
-    private void update() {
+    /**
+     * Only recalculates the diff of the names touched by @param change, unless
+     * the whole content has been replaced or the change is large.
+     */
+    private void onChange(CollectionChange<MemoryEntry> change) {
+        if (change.isReplacedAll()
+                || change.getAdded().size() + change.getRemoved().size() > MAX_INCREMENTAL_CHANGE) {
+            recalculate();
+            return;
+        }
         Set<String> keys = new HashSet<>();
-        keys.addAll(entry.stream().map(MemoryEntry::getName).toList());
-        keys.addAll(leave.stream().map(MemoryEntry::getName).toList());
-        diff.replaceContent(keys.stream().map(key -> new DiffEntry(key,
-                entry.stream().filter(e -> e.getName().equals(key)).findAny(),
-                leave.stream().filter(e -> e.getName().equals(key)).findAny())).toList());
+        change.getRemoved().forEach(e -> keys.add(e.getName()));
+        change.getAdded().forEach(e -> keys.add(e.getName()));
+        if (pendingKeys != null)
+            pendingKeys.addAll(keys); // applied once the running full diff is published
+        else
+            updateKeys(keys);
+    }
+
+    private void updateKeys(Set<String> keys) {
+        List<DiffEntry> removed = new ArrayList<>();
+        List<DiffEntry> updated = new ArrayList<>();
+        for (String key : keys) {
+            DiffEntry diffEntry = DiffEngine.diff(key,
+                    DiffEngine.find(entry, key),
+                    DiffEngine.find(leave, key));
+            if (diffEntry == null) {
+                removed.add(new DiffEntry(key, null, false, null, false));
+            } else {
+                removed.add(diffEntry); // replaces the old row if there is one
+                updated.add(diffEntry);
+            }
+        }
+        updateRows(removed, updated);
+    }
+
+    /**
+     * Diffs snapshots of both states on a background thread and replaces all rows
+     * with the result on the Swing thread.
+     */
+    private void recalculate() {
+        int current = ++generation;
+        pendingKeys = new HashSet<>();
+        List<MemoryEntry> entrySnapshot = new ArrayList<>(entry);
+        List<MemoryEntry> leaveSnapshot = new ArrayList<>(leave);
+        DIFF_EXECUTOR.execute(() -> {
+            try {
+                List<DiffEntry> diff = DiffEngine.diff(entrySnapshot, leaveSnapshot);
+                diff.sort(null);
+                Swing.runLater(() -> publish(current, diff));
+            } catch (RuntimeException e) {
+                Msg.error(this, "Failed to calculate diff", e);
+            }
+        });
+    }
+
+    private void publish(int publishedGeneration, List<DiffEntry> diff) {
+        if (publishedGeneration != generation)
+            return;
+        Set<String> keys = pendingKeys;
+        pendingKeys = null;
+        setRows(diff);
+        if (!keys.isEmpty())
+            updateKeys(keys);
     }
 
     @Override
@@ -84,8 +136,8 @@ public class DiffViewTableModel extends CustomTableModel<DiffEntry> {
     @Override
     public void setColumnHeaders(TableColumnModel columnModel) {
         super.setColumnHeaders(columnModel);
-        TableCellRenderer tcr = new TableCellRenderer(this);
-        columnModel.getColumns().asIterator().forEachRemaining(column -> column.setCellRenderer(tcr));
+        DiffCellRenderer renderer = new DiffCellRenderer(this);
+        columnModel.getColumns().asIterator().forEachRemaining(column -> column.setCellRenderer(renderer));
     }
 
     @Override
@@ -95,47 +147,23 @@ public class DiffViewTableModel extends CustomTableModel<DiffEntry> {
         return List.of("Name", "Entry Value", "Leave Value").get(i);
     }
 
+    @Override
     public boolean isRowDiff(int rowIndex) {
         return getElements().get(rowIndex).isDiff;
     }
 
+    @Override
     public boolean isRowEntrySymbolic(int rowIndex) {
         return getElements().get(rowIndex).isEntrySymbolic;
     }
 
+    @Override
     public boolean isRowLeaveSymbolic(int rowIndex) {
         return getElements().get(rowIndex).isLeaveSymbolic;
     }
 
+    @Override
     public boolean isRowError(int rowIndex) {
         return getElements().get(rowIndex).isError;
     }
-
-    private class TableCellRenderer extends DefaultTableCellRenderer {
-        private final DiffViewTableModel model;
-
-        public TableCellRenderer(DiffViewTableModel model) {
-            this.model = Objects.requireNonNull(model);
-        }
-
-        @Override
-        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus,
-                int row, int column) {
-
-            Color c = Color.BLACK;
-
-            if (column == 0 && model.isRowDiff(row))
-                c = new Color(0, 0xa0, 0);
-            else if (column == 0 && model.isRowError(row))
-                c = new Color(0xa0, 0, 0);
-            else if (column == 1 && model.isRowEntrySymbolic(row))
-                c = new Color(0, 0, 0xa0);
-            else if (column == 2 && model.isRowLeaveSymbolic(row))
-                c = new Color(0, 0, 0xa0);
-
-            JLabel label = new JLabel(value.toString());
-            label.setForeground(c);
-            return label;
-        }
-    }
 }
@@ -0,0 +1,73 @@
+package ui.model;
+
+import java.util.List;
+
+import model.FunctionCoverage;
+import util.observable.ObservableSet;
+
+/**
+ * {@link javax.swing.table.TableModel} to use for displaying the coverage of
+ * the functions touched by a trace. The columns report their classes, so a
+ * {@link javax.swing.table.TableRowSorter} sorts the counts numerically.
+ */
+public class FunctionCoverageTableModel extends CustomTableModel<FunctionCoverage> {
+    public FunctionCoverageTableModel(ObservableSet<FunctionCoverage> coverages) {
+        super(coverages);
+    }
+
+    @Override
+    public int getColumnCount() {
+        return 7;
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        switch (columnIndex) {
+            case 0:
+            case 1:
+                return String.class;
+            case 2:
+            case 3:
+            case 4:
+            case 5:
+                return Integer.class;
+            case 6:
+                return Double.class;
+            default:
+                throw new IllegalArgumentException("Illegal columnIndex");
+        }
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        if (rowIndex >= getRowCount() || columnIndex >= getColumnCount())
+            throw new IllegalArgumentException("Invalid rowIndex or columnIndex");
+        FunctionCoverage c = getElements().get(rowIndex);
+        switch (columnIndex) {
+            case 0:
+                return c.getName();
+            case 1:
+                return c.getEntryAddress().toString();
+            case 2:
+                return c.getCoveredInstructions();
+            case 3:
+                return c.getTotalInstructions();
+            case 4:
+                return c.getCoveredBlocks();
+            case 5:
+                return c.getTotalBlocks();
+            case 6:
+                return Math.round(c.getInstructionCoverage() * 10) / 10.0;
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    @Override
+    protected String getColumnHeader(int i) {
+        if (i >= getColumnCount())
+            throw new IllegalArgumentException("Column not present");
+        return List.of("Function", "Entry Address", "Covered Instructions", "Instructions", "Covered Blocks",
+                "Blocks", "Coverage %").get(i);
+    }
+}
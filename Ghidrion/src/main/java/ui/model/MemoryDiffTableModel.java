@@ -0,0 +1,433 @@
+package ui.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableColumnModel;
+
+import ghidra.util.Msg;
+import ghidra.util.Swing;
+import model.DiffEngine;
+import model.DiffRange;
+import model.MemoryEntry;
+import model.MemoryStore;
+import model.ObservableMemory;
+import util.observable.CollectionChange;
+
+/**
+ * {@link javax.swing.table.TableModel} of the memory diff view. Adjacent
+ * addresses with the same status are grouped into {@link DiffRange}s, which are
+ * shown as one row each and can be expanded to show their bytes. Without
+ * grouping, every byte has its own row.
+ *
+ * Rows are materialised lazily: only the ranges and the row each of them starts
+ * at are kept, the values of a row are read from snapshots of both memory
+ * states when the row is painted. The size of the model therefore depends on
+ * the number of ranges, not on the number of bytes.
+ *
+ * Changes of the memory states only recalculate the span of addresses they
+ * touched, which is spliced into the ranges on the Swing thread. Replaced
+ * states and large changes are recalculated as a whole on a background
+ * thread.
+ *
+ * Cells are colored by the {@link DiffCellRenderer}.
+ */
+public class MemoryDiffTableModel extends AbstractTableModel implements DiffTableModel {
+    private static final int PREVIEW_BYTES = 8;
+    private static final String BYTE_INDENT = "    ";
+    private static final int MAX_INCREMENTAL_ENTRIES = 1 << 12; // larger changes of single entries are recalculated
+    private static final long MAX_INCREMENTAL_BYTES = 1 << 16; // larger spans are recalculated on a background thread
+
+    private final ObservableMemory entry;
+    private final ObservableMemory leave;
+    private MemoryStore entrySnapshot = new MemoryStore();
+    private MemoryStore leaveSnapshot = new MemoryStore();
+    private List<DiffRange> ranges = new ArrayList<>();
+    private long[] firstRows = { 0 }; // first row of each range, followed by the number of rows
+    private final Set<Long> expanded = new HashSet<>(); // start addresses of the expanded ranges
+    private boolean grouped = true;
+    private boolean recalculationScheduled = false;
+    private boolean recalculating = false; // whether a full recalculation is running in the background
+    private boolean dirtyAll = false; // whether the scheduled recalculation has to recalculate everything
+    private long dirtyStart = Long.MAX_VALUE; // span of addresses changed since the last recalculation
+    private long dirtyEnd = Long.MIN_VALUE;
+    private int generation = 0; // incremented for every recalculation, older results are dropped
+
+    /**
+     * The memory states have to be modified on the Swing thread. The ranges are
+     * calculated on a background thread and published on the Swing thread.
+     *
+     * @param entry memory before trace from loaded YAML
+     * @param leave memory after trace from loaded YAML
+     */
+    public MemoryDiffTableModel(ObservableMemory entry, ObservableMemory leave) {
+        this.entry = Objects.requireNonNull(entry);
+        this.leave = Objects.requireNonNull(leave);
+        entry.addChangeObserver(this::scheduleRecalculation);
+        leave.addChangeObserver(this::scheduleRecalculation);
+        recalculate();
+    }
+
+    /**
+     * Changes of the same event are recalculated at once, as one span covering
+     * all of them.
+     */
+    private void scheduleRecalculation(CollectionChange<MemoryEntry> change) {
+        if (change.isReplacedAll() || !markDirty(change.getAdded()) || !markDirty(change.getRemoved()))
+            dirtyAll = true;
+        if (recalculationScheduled)
+            return;
+        recalculationScheduled = true;
+        Swing.runLater(() -> {
+            recalculationScheduled = false;
+            boolean all = dirtyAll;
+            long start = dirtyStart;
+            long end = dirtyEnd;
+            dirtyAll = false;
+            dirtyStart = Long.MAX_VALUE;
+            dirtyEnd = Long.MIN_VALUE;
+            if (all || recalculating) // a running recalculation would overwrite the spliced ranges
+                recalculate();
+            else if (start <= end)
+                recalculate(start, end);
+        });
+    }
+
+    /**
+     * Extends the dirty span by the addresses of @param entries.
+     *
+     * @return {@code false} if the span can't be determined cheaply
+     */
+    private boolean markDirty(Collection<MemoryEntry> entries) {
+        if (entries.isEmpty())
+            return true;
+        if (entries instanceof MemoryStore) {
+            Collection<MemoryStore.Run> runs = ((MemoryStore) entries).getRuns();
+            MemoryStore.Run last = null;
+            for (MemoryStore.Run run : runs) {
+                if (last == null)
+                    dirtyStart = Math.min(dirtyStart, run.getStart());
+                last = run;
+            }
+            dirtyEnd = Math.max(dirtyEnd, last.getEnd());
+            return true;
+        }
+        if (entries.size() > MAX_INCREMENTAL_ENTRIES)
+            return false;
+        try {
+            for (MemoryEntry e : entries) {
+                long address = MemoryStore.parseAddress(e.getName());
+                dirtyStart = Math.min(dirtyStart, address);
+                dirtyEnd = Math.max(dirtyEnd, address);
+            }
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Diffs snapshots of both memory states on a background thread and replaces
+     * all ranges with the result on the Swing thread.
+     */
+    private void recalculate() {
+        int current = ++generation;
+        recalculating = true;
+        MemoryStore entryCopy = entry.getStore().copyRange(0, Long.MAX_VALUE);
+        MemoryStore leaveCopy = leave.getStore().copyRange(0, Long.MAX_VALUE);
+        DIFF_EXECUTOR.execute(() -> {
+            try {
+                List<DiffRange> diff = DiffEngine.diffRanges(entryCopy, leaveCopy);
+                Swing.runLater(() -> publish(current, entryCopy, leaveCopy, diff));
+            } catch (RuntimeException e) {
+                Msg.error(this, "Failed to calculate memory diff", e);
+                Swing.runLater(() -> {
+                    if (current == generation)
+                        recalculating = false;
+                });
+            }
+        });
+    }
+
+    private void publish(int publishedGeneration, MemoryStore entryCopy, MemoryStore leaveCopy,
+            List<DiffRange> diff) {
+        if (publishedGeneration != generation)
+            return;
+        recalculating = false;
+        entrySnapshot = entryCopy;
+        leaveSnapshot = leaveCopy;
+        ranges = new ArrayList<>(diff);
+        Set<Long> starts = new HashSet<>();
+        diff.forEach(r -> starts.add(r.getStart()));
+        expanded.retainAll(starts);
+        updateFirstRows();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Updates the snapshots from @param start to @param end (inclusive) and
+     * replaces the ranges overlapping or adjacent to them with a new diff of
+     * that span. Large spans are recalculated as a whole instead.
+     */
+    private void recalculate(long start, long end) {
+        MemoryStore entryCopy = entry.getStore().copyRange(start, end);
+        MemoryStore leaveCopy = leave.getStore().copyRange(start, end);
+        if (entryCopy.getByteCount() + leaveCopy.getByteCount() > MAX_INCREMENTAL_BYTES) {
+            recalculate();
+            return;
+        }
+        entrySnapshot.removeRange(start, end);
+        entrySnapshot.putAll(entryCopy);
+        leaveSnapshot.removeRange(start, end);
+        leaveSnapshot.putAll(leaveCopy);
+
+        // ranges touching the span may merge with or be split by its new ranges
+        int first = getFirstRangeEndingAtOrAfter(start == 0 ? 0 : start - 1);
+        int last = getFirstRangeEndingAtOrAfter(end == Long.MAX_VALUE ? end : end + 1);
+        if (last < ranges.size() && ranges.get(last).getStart() <= (end == Long.MAX_VALUE ? end : end + 1))
+            last++; // exclusive
+        long spanStart = first < last ? Math.min(start, ranges.get(first).getStart()) : start;
+        long spanEnd = first < last ? Math.max(end, ranges.get(last - 1).getEnd()) : end;
+        List<DiffRange> diff = DiffEngine.diffRanges(entrySnapshot.copyRange(spanStart, spanEnd),
+                leaveSnapshot.copyRange(spanStart, spanEnd));
+
+        generation++; // drops results of recalculations started before
+        Set<Long> starts = new HashSet<>();
+        diff.forEach(r -> starts.add(r.getStart()));
+        List<DiffRange> replaced = ranges.subList(first, last);
+        replaced.forEach(r -> {
+            if (!starts.contains(r.getStart()))
+                expanded.remove(r.getStart());
+        });
+        replaced.clear();
+        ranges.addAll(first, diff);
+        long firstRow = firstRows[first];
+        long oldRows = firstRows[last] - firstRow;
+        updateFirstRows();
+        long newRows = firstRows[first + diff.size()] - firstRow;
+        fireRowsReplaced(firstRow, oldRows, newRows);
+    }
+
+    /**
+     * @return the index of the first range ending at or after @param address,
+     *         or the number of ranges if there is none
+     */
+    private int getFirstRangeEndingAtOrAfter(long address) {
+        int low = 0;
+        int high = ranges.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ranges.get(mid).getEnd() < address)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Notifies the table that @param oldRows rows starting at @param firstRow
+     * have been replaced by @param newRows rows.
+     */
+    private void fireRowsReplaced(long firstRow, long oldRows, long newRows) {
+        if (firstRows[ranges.size()] > Integer.MAX_VALUE || firstRow + Math.max(oldRows, newRows) > Integer.MAX_VALUE) {
+            fireTableDataChanged();
+            return;
+        }
+        int row = (int) firstRow;
+        int updated = (int) Math.min(oldRows, newRows);
+        if (updated > 0)
+            fireTableRowsUpdated(row, row + updated - 1);
+        if (oldRows > newRows)
+            fireTableRowsDeleted(row + updated, (int) (row + oldRows - 1));
+        else if (newRows > oldRows)
+            fireTableRowsInserted(row + updated, (int) (row + newRows - 1));
+    }
+
+    private void updateFirstRows() {
+        long[] rows = new long[ranges.size() + 1];
+        for (int i = 0; i < ranges.size(); i++)
+            rows[i + 1] = rows[i] + getRowsOf(ranges.get(i));
+        firstRows = rows;
+    }
+
+    private long getRowsOf(DiffRange range) {
+        if (!grouped)
+            return range.getLength();
+        if (range.getLength() == 1)
+            return 1; // shown as byte without a range row
+        return expanded.contains(range.getStart()) ? 1 + range.getLength() : 1;
+    }
+
+    /**
+     * @return {@code true} if each range is shown as one expandable row,
+     *         {@code false} if each byte has its own row
+     */
+    public boolean isGrouped() {
+        return grouped;
+    }
+
+    public void setGrouped(boolean grouped) {
+        if (this.grouped == grouped)
+            return;
+        this.grouped = grouped;
+        updateFirstRows();
+        fireTableDataChanged();
+    }
+
+    /**
+     * Shows or hides the bytes of the range in row @param rowIndex. Other rows
+     * are ignored, as are ranges with more bytes than the table can show.
+     */
+    public void toggleExpanded(int rowIndex) {
+        if (!isRangeRow(rowIndex))
+            return;
+        int i = getRangeIndex(rowIndex);
+        DiffRange range = ranges.get(i);
+        long length = range.getLength();
+        if (expanded.remove(range.getStart())) {
+            updateFirstRows();
+            fireTableRowsDeleted(rowIndex + 1, (int) (rowIndex + length));
+        } else if (firstRows[ranges.size()] + length <= Integer.MAX_VALUE) {
+            expanded.add(range.getStart());
+            updateFirstRows();
+            fireTableRowsInserted(rowIndex + 1, (int) (rowIndex + length));
+        }
+        fireTableRowsUpdated(rowIndex, rowIndex);
+    }
+
+    /**
+     * @return {@code true} if row @param rowIndex shows a whole range instead of
+     *         a single byte
+     */
+    public boolean isRangeRow(int rowIndex) {
+        if (!grouped)
+            return false;
+        int i = getRangeIndex(rowIndex);
+        return ranges.get(i).getLength() > 1 && firstRows[i] == rowIndex;
+    }
+
+    private int getRangeIndex(int rowIndex) {
+        if (rowIndex < 0 || rowIndex >= getRowCount())
+            throw new IllegalArgumentException("Illegal rowIndex");
+        int i = Arrays.binarySearch(firstRows, rowIndex);
+        return i >= 0 ? i : -i - 2;
+    }
+
+    /**
+     * @return the address of the byte in row @param rowIndex, which must not be a
+     *         range row
+     */
+    private long getAddress(int rowIndex) {
+        int i = getRangeIndex(rowIndex);
+        long offset = rowIndex - firstRows[i];
+        if (grouped && ranges.get(i).getLength() > 1)
+            offset--; // the range row comes first
+        return ranges.get(i).getStart() + offset;
+    }
+
+    @Override
+    public int getRowCount() {
+        return (int) Math.min(firstRows[firstRows.length - 1], Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int getColumnCount() {
+        return 3;
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        if (columnIndex < 0 || columnIndex >= getColumnCount())
+            throw new IllegalArgumentException("Illegal columnIndex");
+        if (isRangeRow(rowIndex)) {
+            DiffRange range = getRange(rowIndex);
+            switch (columnIndex) {
+                case 0:
+                    return (expanded.contains(range.getStart()) ? "[-] " : "[+] ")
+                            + MemoryStore.formatAddress(range.getStart()) + " - "
+                            + MemoryStore.formatAddress(range.getEnd())
+                            + " (" + range.getLength() + " bytes)";
+                case 1:
+                    return getPreview(entrySnapshot, range);
+                default:
+                    return getPreview(leaveSnapshot, range);
+            }
+        }
+        long address = getAddress(rowIndex);
+        switch (columnIndex) {
+            case 0:
+                return (grouped && getRange(rowIndex).getLength() > 1 ? BYTE_INDENT : "")
+                        + MemoryStore.formatAddress(address);
+            case 1:
+                return getValue(entrySnapshot, address);
+            default:
+                return getValue(leaveSnapshot, address);
+        }
+    }
+
+    private static String getValue(MemoryStore store, long address) {
+        MemoryStore.Run run = store.getRun(address);
+        return run == null ? "" : MemoryStore.formatValue(run.getValue(address));
+    }
+
+    /**
+     * @return the values of the first bytes of @param range in @param store, or
+     *         an empty string if they are missing
+     */
+    private static String getPreview(MemoryStore store, DiffRange range) {
+        StringBuilder preview = new StringBuilder();
+        long end = Math.min(range.getEnd(), range.getStart() + PREVIEW_BYTES - 1);
+        for (long address = range.getStart(); address <= end; address++) {
+            String value = getValue(store, address);
+            if (value.isEmpty())
+                return "";
+            if (preview.length() > 0)
+                preview.append(' ');
+            preview.append(value);
+        }
+        if (end < range.getEnd())
+            preview.append(" ...");
+        return preview.toString();
+    }
+
+    private DiffRange getRange(int rowIndex) {
+        return ranges.get(getRangeIndex(rowIndex));
+    }
+
+    @Override
+    public boolean isRowDiff(int rowIndex) {
+        DiffRange range = getRange(rowIndex);
+        return range.isChanged() || range.isMissing();
+    }
+
+    @Override
+    public boolean isRowError(int rowIndex) {
+        return getRange(rowIndex).isMissing();
+    }
+
+    @Override
+    public boolean isRowEntrySymbolic(int rowIndex) {
+        return getRange(rowIndex).isEntrySymbolic();
+    }
+
+    @Override
+    public boolean isRowLeaveSymbolic(int rowIndex) {
+        return getRange(rowIndex).isLeaveSymbolic();
+    }
+
+    public void setColumnHeaders(TableColumnModel columnModel) {
+        List<String> headers = List.of("Name", "Entry Value", "Leave Value");
+        DiffCellRenderer renderer = new DiffCellRenderer(this);
+        for (int i = 0; i < getColumnCount(); i++) {
+            columnModel.getColumn(i).setHeaderValue(headers.get(i));
+            columnModel.getColumn(i).setCellRenderer(renderer);
+        }
+    }
+}
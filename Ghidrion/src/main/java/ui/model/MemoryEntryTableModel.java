@@ -3,16 +3,38 @@ package ui.model;
 import java.util.List;
 
 import model.MemoryEntry;
+import model.MemoryStore;
+import model.ObservableMemory;
 import util.observable.ObservableSet;
 
 /**
  * {@link javax.swing.table.TableModel} to use for displaying memory entries or
  * registers.
+ * 
+ * Memory is displayed straight from its {@link MemoryStore} in address order,
+ * so rows are only created for the visible bytes.
  */
 public class MemoryEntryTableModel extends CustomTableModel<MemoryEntry> {
+    private final MemoryStore memory; // null if the entries are sorted by CustomTableModel
 
     public MemoryEntryTableModel(ObservableSet<MemoryEntry> hooks) {
         super(hooks);
+        this.memory = null;
+    }
+
+    public MemoryEntryTableModel(ObservableMemory memory) {
+        this.memory = memory.getStore();
+        memory.addObserver(e -> fireTableDataChanged());
+    }
+
+    @Override
+    public int getRowCount() {
+        return memory == null ? super.getRowCount() : memory.size();
+    }
+
+    @Override
+    protected MemoryEntry getElementAt(int rowIndex) {
+        return memory == null ? super.getElementAt(rowIndex) : memory.get(rowIndex);
     }
 
     @Override
@@ -25,7 +47,7 @@ public class MemoryEntryTableModel extends CustomTableModel<MemoryEntry> {
         if (rowIndex >= getRowCount() || columnIndex >= getColumnCount())
             throw new IllegalArgumentException("Invalid rowIndex or columnIndex");
 
-        MemoryEntry m = getElements().get(rowIndex);
+        MemoryEntry m = getElementAt(rowIndex);
         switch (columnIndex) {
             case 0:
                 return m.isSymbolic() ? "✅" : "❌";
@@ -3,9 +3,7 @@ package ui.view;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
-import java.util.function.Consumer;
 import java.util.function.Function;
 
 import javax.swing.DefaultListModel;
@@ -17,6 +15,7 @@ import javax.swing.JTextField;
 import javax.swing.text.PlainDocument;
 
 import ui.ctrl.FilterPanelController;
+import util.observable.ObservableSet;
 
 /**
  * Contains a list that can be filtered using a regular expression in a text
@@ -37,13 +36,25 @@ public class FilterPanel<E extends Comparable<E>> extends JPanel {
      * @param title         to display above the text field
      */
     public FilterPanel(Function<E, String> displayMapper, String title) {
+        this(displayMapper, title, false);
+    }
+
+    /**
+     * @param displayMapper used to transform the elements to their display
+     *                      representation.
+     * @param title         to display above the text field
+     * @param literalSearch whether filters without regex metacharacters are
+     *                      looked up in an index instead of matching every
+     *                      element, see {@link FilterPanelController}
+     */
+    public FilterPanel(Function<E, String> displayMapper, String title, boolean literalSearch) {
         DefaultListModel<String> listModel = new DefaultListModel<>();
         PlainDocument filterDocument = new PlainDocument();
         this.list.setModel(listModel);
         this.filter.setDocument(filterDocument);
         this.title = new JLabel(title);
         this.controller = new FilterPanelController<>(displayMapper, listModel, filterDocument,
-                filter.getHighlighter());
+                filter.getHighlighter(), literalSearch);
         this.list.addListSelectionListener(
                 event -> controller.updateSelectedElements(list.getSelectedValuesList()));
 
@@ -70,24 +81,31 @@ public class FilterPanel<E extends Comparable<E>> extends JPanel {
     }
 
     /**
-     * @param newElements that should be filtered by this component.
+     * Filters the elements of @param source and follows its changes
+     * incrementally, e.g. to filter the output of another {@link FilterPanel}.
      */
-    public void updateElements(Collection<E> newElements) {
-        controller.updateElements(newElements);
+    public void filterFrom(ObservableSet<E> source) {
+        controller.updateElements(source);
+        source.addChangeObserver(change -> {
+            if (change.isReplacedAll())
+                controller.updateElements(source);
+            else
+                controller.updateElements(change.getRemoved(), change.getAdded());
+        });
     }
 
     /**
-     * @param observer triggered whenever the filter or selection changes with all
-     *                 passing elements.
+     * @return all elements currently passing the filter, whose changes are
+     *         reported to change observers. Must not be modified.
      */
-    public void addFilteredElementsObserver(Consumer<List<E>> observer) {
-        controller.getOutputList().addObserver(observer);
+    public ObservableSet<E> getFilteredElementSet() {
+        return controller.getOutput();
     }
 
     /**
      * @return all elements currently passing the filter.
      */
     public List<E> getFilteredElements() {
-        return new ArrayList<>(controller.getOutputList());
+        return new ArrayList<>(controller.getOutput());
     }
 }
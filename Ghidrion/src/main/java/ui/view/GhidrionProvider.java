@@ -14,10 +14,12 @@ import javax.swing.JComponent;
  */
 public class GhidrionProvider extends ComponentProvider {
 	private JPanel panel = new JPanel();
+	private final CreateController createController;
 
 	public GhidrionProvider(GhidrionPlugin plugin, String pluginName, String owner, MorionInitTraceFile traceFile) {
 		super(plugin.getTool(), pluginName, owner);
-		GhidrionUI ui = new GhidrionUI(new CreateController(plugin, traceFile), new DisplayController(plugin));
+		createController = new CreateController(plugin, traceFile);
+		GhidrionUI ui = new GhidrionUI(createController, new DisplayController(plugin));
 		panel.add(ui.getPanel());
 		setVisible(true);
 	}
@@ -26,4 +28,12 @@ public class GhidrionProvider extends ComponentProvider {
 	public JComponent getComponent() {
 		return panel;
 	}
+
+	/**
+	 * Stops the controllers from observing the program. To be called when the
+	 * plugin is disposed.
+	 */
+	public void disposeControllers() {
+		createController.dispose();
+	}
 }
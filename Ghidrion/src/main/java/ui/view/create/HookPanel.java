@@ -31,11 +31,11 @@ public class HookPanel extends JPanel {
     private final JLabel labelMode = new JLabel("Mode");
     private final JTextField textFieldLibraryName = new JTextField("libc");
     private final FilterPanel<HookableFunction> filterFunctionNames = new FilterPanel<>(HookableFunction::getName,
-            "Function");
+            "Function", true);
     private final FilterPanel<HookableFunction> filterBlockNames = new FilterPanel<>(HookableFunction::getBlockName,
-            "Block");;
+            "Block", true);
     private final FilterPanel<HookableFunction> filterAddresses = new FilterPanel<>(f -> f.getEntryAddress().toString(),
-            "Address");;
+            "Address", true);
     private final JComboBox<Mode> comboBoxHookMode = new JComboBox<>(new DefaultComboBoxModel<>(Mode.values()));
     private final JButton btnAddHook = new JButton("Add");
     private final HookTableModel tableAddedHooksModel;
@@ -127,9 +127,9 @@ public class HookPanel extends JPanel {
     }
 
     private void setupComponents() {
-        controller.getCurrentlyHookableFunctions().addObserver(filterFunctionNames::updateElements);
-        filterFunctionNames.addFilteredElementsObserver(filterBlockNames::updateElements);
-        filterBlockNames.addFilteredElementsObserver(filterAddresses::updateElements);
+        filterFunctionNames.filterFrom(controller.getCurrentlyHookableFunctions());
+        filterBlockNames.filterFrom(filterFunctionNames.getFilteredElementSet());
+        filterAddresses.filterFrom(filterBlockNames.getFilteredElementSet());
         btnAddHook.addActionListener(event -> controller.addHooks(
                 textFieldLibraryName.getText(),
                 filterAddresses.getFilteredElements(),
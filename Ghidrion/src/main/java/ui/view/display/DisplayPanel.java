@@ -3,11 +3,17 @@ package ui.view.display;
 import javax.swing.JPanel;
 
 import ui.model.DiffViewTableModel;
-import util.observable.ObservableSet;
+import ui.model.FunctionCoverageTableModel;
+import ui.model.MemoryDiffTableModel;
 
+import java.awt.BorderLayout;
 import java.awt.GridBagLayout;
 import java.awt.GridBagConstraints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JScrollPane;
 import javax.swing.JTabbedPane;
 import javax.swing.JTable;
@@ -27,6 +33,10 @@ public class DisplayPanel extends JPanel {
 	private final JScrollPane scrollPaneDiffViewRegisters = new JScrollPane(tableDiffViewRegisters);
 	private final JTable tableDiffViewMemory = new JTable();
 	private final JScrollPane scrollPaneDiffViewMemory = new JScrollPane(tableDiffViewMemory);
+	private final JCheckBox chckbxGroupMemoryRanges = new JCheckBox("Group Address Ranges", true);
+	private final JPanel panelDiffViewMemory = new JPanel(new BorderLayout());
+	private final JTable tableCoverage = new JTable();
+	private final JScrollPane scrollPaneCoverage = new JScrollPane(tableCoverage);
 	private final JTabbedPane tabbedPaneDiffView = new JTabbedPane(JTabbedPane.TOP);
 
 	public DisplayPanel(DisplayController controller) {
@@ -69,7 +79,10 @@ public class DisplayPanel extends JPanel {
 		add(btnClearTrace, gbc_btnClearTrace);
 
 		tabbedPaneDiffView.addTab("Registers", scrollPaneDiffViewRegisters);
-		tabbedPaneDiffView.addTab("Memory", scrollPaneDiffViewMemory);
+		panelDiffViewMemory.add(chckbxGroupMemoryRanges, BorderLayout.NORTH);
+		panelDiffViewMemory.add(scrollPaneDiffViewMemory, BorderLayout.CENTER);
+		tabbedPaneDiffView.addTab("Memory", panelDiffViewMemory);
+		tabbedPaneDiffView.addTab("Coverage", scrollPaneCoverage);
 		GridBagConstraints gbc_tabbedPaneDiffView = new GridBagConstraints();
 		gbc_tabbedPaneDiffView.fill = GridBagConstraints.BOTH;
 		gbc_tabbedPaneDiffView.gridwidth = 3;
@@ -85,21 +98,48 @@ public class DisplayPanel extends JPanel {
 		btnChooseTraceColor.setBackground(controller.getTraceColor().getColor());
 		controller.getTraceColor().addObserver(color -> btnChooseTraceColor.setBackground(color));
 		setupDiffViews();
+		setupCoverageView();
 	}
 
 	private void setupDiffViews() {
-		DiffViewTableModel memoryModel = new DiffViewTableModel(new ObservableSet<>(),
-				controller.getTraceFile().getEntryMemory(),
+		MemoryDiffTableModel memoryModel = new MemoryDiffTableModel(controller.getTraceFile().getEntryMemory(),
 				controller.getTraceFile().getLeaveMemory());
 		tableDiffViewMemory.setModel(memoryModel);
 		tableDiffViewMemory.setCellSelectionEnabled(false);
 		memoryModel.setColumnHeaders(tableDiffViewMemory.getColumnModel());
-
-		DiffViewTableModel registerModel = new DiffViewTableModel(new ObservableSet<>(),
-				controller.getTraceFile().getEntryRegisters(),
+		chckbxGroupMemoryRanges.addActionListener(e -> memoryModel.setGrouped(chckbxGroupMemoryRanges.isSelected()));
+		tableDiffViewMemory.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				int row = tableDiffViewMemory.rowAtPoint(e.getPoint());
+				if (e.getClickCount() == 2 && row >= 0)
+					memoryModel.toggleExpanded(row);
+			}
+		});
+
+		DiffViewTableModel registerModel = new DiffViewTableModel(controller.getTraceFile().getEntryRegisters(),
 				controller.getTraceFile().getLeaveRegisters());
 		tableDiffViewRegisters.setModel(registerModel);
 		tableDiffViewRegisters.setCellSelectionEnabled(false);
 		registerModel.setColumnHeaders(tableDiffViewRegisters.getColumnModel());
 	}
+
+	private void setupCoverageView() {
+		FunctionCoverageTableModel coverageModel = new FunctionCoverageTableModel(
+				controller.getFunctionCoverages());
+		tableCoverage.setModel(coverageModel);
+		tableCoverage.setAutoCreateRowSorter(true);
+		coverageModel.setColumnHeaders(tableCoverage.getColumnModel());
+		tableCoverage.addMouseListener(new MouseAdapter() {
+			@Override
+			public void mouseClicked(MouseEvent e) {
+				int row = tableCoverage.rowAtPoint(e.getPoint());
+				if (e.getClickCount() == 2 && row >= 0)
+					controller.goTo(coverageModel
+							.getElementsAtRowIndices(new int[] { tableCoverage.convertRowIndexToModel(row) })
+							.get(0)
+							.getEntryAddress());
+			}
+		});
+	}
 }
@@ -0,0 +1,151 @@
+package util.collection;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * {@link java.util.HashSet} that also indexes its elements by a key, e.g. an
+ * address. The index is updated together with the set, so the elements with a
+ * key can be looked up in O(1), or O(log n) if the keys are sorted.
+ *
+ * @param <K> type of the keys
+ * @param <E> type of the elements
+ */
+public class IndexedSet<K, E> extends AbstractSet<E> {
+	private final Set<E> elements = new HashSet<>();
+	private final Map<K, Set<E>> index;
+	private final Function<? super E, ? extends K> keyMapper;
+
+	/**
+	 * @param keyMapper  returns the key of an element, which must not change
+	 * @param sortedKeys whether the keys are kept sorted, which is required for
+	 *                   {@link #getKeys(Object, Object)} and
+	 *                   {@link #lowerKey(Object)}
+	 */
+	public IndexedSet(Function<? super E, ? extends K> keyMapper, boolean sortedKeys) {
+		this.keyMapper = Objects.requireNonNull(keyMapper);
+		this.index = sortedKeys ? new TreeMap<>() : new HashMap<>();
+	}
+
+	/**
+	 * @param key to look up
+	 * @return the elements with @param key, which must not be modified
+	 */
+	public Set<E> get(K key) {
+		Set<E> withKey = index.get(key);
+		return withKey == null ? Collections.emptySet() : Collections.unmodifiableSet(withKey);
+	}
+
+	/**
+	 * @param key to look up
+	 * @return {@code true} if there is at least one element with @param key
+	 */
+	public boolean containsKey(K key) {
+		return index.containsKey(key);
+	}
+
+	/**
+	 * @param from first key
+	 * @param to   last key (inclusive)
+	 * @return the keys of elements from @param from to @param to in order
+	 * @throws UnsupportedOperationException if the keys aren't sorted
+	 */
+	public NavigableSet<K> getKeys(K from, K to) {
+		return Collections.unmodifiableNavigableSet(getSortedIndex().navigableKeySet().subSet(from, true, to, true));
+	}
+
+	/**
+	 * @param key to look up
+	 * @return the greatest key of an element that is smaller than @param key, or
+	 *         {@code null} if there is none
+	 * @throws UnsupportedOperationException if the keys aren't sorted
+	 */
+	public K lowerKey(K key) {
+		return getSortedIndex().lowerKey(key);
+	}
+
+	private NavigableMap<K, Set<E>> getSortedIndex() {
+		if (!(index instanceof NavigableMap))
+			throw new UnsupportedOperationException("Keys are not sorted");
+		return (NavigableMap<K, Set<E>>) index;
+	}
+
+	@Override
+	public boolean add(E e) {
+		if (!elements.add(e))
+			return false;
+		index.computeIfAbsent(keyMapper.apply(e), k -> new HashSet<>()).add(e);
+		return true;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean remove(Object o) {
+		if (!elements.remove(o))
+			return false;
+		unindex((E) o);
+		return true;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return elements.contains(o);
+	}
+
+	@Override
+	public int size() {
+		return elements.size();
+	}
+
+	@Override
+	public void clear() {
+		elements.clear();
+		index.clear();
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		Iterator<E> iterator = elements.iterator();
+		return new Iterator<>() {
+			private E current;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public E next() {
+				current = iterator.next();
+				return current;
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				unindex(current);
+			}
+		};
+	}
+
+	/**
+	 * Removes @param e from the index. The element that has been added may be a
+	 * different, but equal instance.
+	 */
+	private void unindex(E e) {
+		K key = keyMapper.apply(e);
+		Set<E> withKey = index.get(key);
+		if (withKey != null && withKey.remove(e) && withKey.isEmpty())
+			index.remove(key);
+	}
+}
@@ -0,0 +1,131 @@
+package util.collection;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from primitive {@code long} keys to primitive {@code int} values.
+ *
+ * Uses open addressing with linear probing in two parallel arrays, so neither
+ * keys nor values are boxed and no entry objects are allocated. Removing
+ * single keys is not supported.
+ */
+public class LongIntHashMap {
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.5f;
+	private static final long FREE_KEY = 0; // marks empty slots, the key 0 itself is stored separately
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size = 0;
+	private boolean hasFreeKey = false;
+	private int freeKeyValue;
+
+	public LongIntHashMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize number of keys that can be stored without resizing
+	 */
+	public LongIntHashMap(int expectedSize) {
+		allocate(tableSizeFor(expectedSize));
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean containsKey(long key) {
+		if (key == FREE_KEY)
+			return hasFreeKey;
+		return keys[findSlot(key)] == key;
+	}
+
+	/**
+	 * @return the value of @param key or @param defaultValue if the key is not
+	 *         present
+	 */
+	public int get(long key, int defaultValue) {
+		if (key == FREE_KEY)
+			return hasFreeKey ? freeKeyValue : defaultValue;
+		int slot = findSlot(key);
+		return keys[slot] == key ? values[slot] : defaultValue;
+	}
+
+	/**
+	 * @return the previous value of @param key or @param defaultValue if the key
+	 *         was not present
+	 */
+	public int put(long key, int value, int defaultValue) {
+		if (key == FREE_KEY) {
+			int previous = hasFreeKey ? freeKeyValue : defaultValue;
+			if (!hasFreeKey)
+				size++;
+			hasFreeKey = true;
+			freeKeyValue = value;
+			return previous;
+		}
+		int slot = findSlot(key);
+		if (keys[slot] == key) {
+			int previous = values[slot];
+			values[slot] = value;
+			return previous;
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size > keys.length * LOAD_FACTOR)
+			allocate(keys.length * 2);
+		return defaultValue;
+	}
+
+	public void clear() {
+		Arrays.fill(keys, FREE_KEY);
+		size = 0;
+		hasFreeKey = false;
+	}
+
+	/**
+	 * @return the slot containing @param key, or the empty slot where it would be
+	 *         inserted
+	 */
+	private int findSlot(long key) {
+		int slot = hash(key) & mask;
+		while (keys[slot] != FREE_KEY && keys[slot] != key)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	private void allocate(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[capacity];
+		values = new int[capacity];
+		mask = capacity - 1;
+		if (oldKeys == null)
+			return;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != FREE_KEY) {
+				int slot = findSlot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private static int tableSizeFor(int expectedSize) {
+		int capacity = DEFAULT_CAPACITY;
+		while (capacity * LOAD_FACTOR < expectedSize)
+			capacity *= 2;
+		return capacity;
+	}
+}
@@ -0,0 +1,122 @@
+package util.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index for finding the texts containing a literal substring.
+ *
+ * For every trigram, the sequence of three characters, the index stores the
+ * ascending positions of the texts containing it. A search intersects the lists
+ * of the trigrams of the searched literal, starting with the shortest one, and
+ * only checks the remaining candidates with {@link String#contains}. Literals
+ * shorter than a trigram are searched by scanning all texts.
+ */
+public class NGramIndex {
+	private static final int N = 3;
+
+	private final String[] texts;
+	private final Map<Long, int[]> postings = new HashMap<>();
+
+	/**
+	 * Builds the index in O(total length of @param texts).
+	 */
+	public NGramIndex(List<String> texts) {
+		this.texts = texts.toArray(String[]::new);
+		Map<Long, Postings> builders = new HashMap<>();
+		for (int id = 0; id < this.texts.length; id++) {
+			String text = this.texts[id];
+			for (int i = 0; i + N <= text.length(); i++)
+				builders.computeIfAbsent(key(text, i), k -> new Postings()).add(id);
+		}
+		builders.forEach((key, p) -> postings.put(key, p.toArray()));
+	}
+
+	public int size() {
+		return texts.length;
+	}
+
+	/**
+	 * @param literal to search for
+	 * @return the ascending positions of the texts containing @param literal
+	 */
+	public int[] search(String literal) {
+		if (literal.length() < N)
+			return scan(literal);
+		List<int[]> lists = new ArrayList<>();
+		for (int i = 0; i + N <= literal.length(); i++) {
+			int[] list = postings.get(key(literal, i));
+			if (list == null)
+				return new int[0];
+			lists.add(list);
+		}
+		lists.sort(Comparator.comparingInt(list -> list.length));
+		int[] candidates = lists.get(0);
+		for (int i = 1; i < lists.size() && candidates.length > 0; i++)
+			candidates = intersect(candidates, lists.get(i));
+		int count = 0;
+		int[] result = new int[candidates.length];
+		for (int id : candidates)
+			if (literal.length() == N || texts[id].contains(literal))
+				result[count++] = id;
+		return Arrays.copyOf(result, count);
+	}
+
+	private int[] scan(String literal) {
+		Postings result = new Postings();
+		for (int id = 0; id < texts.length; id++)
+			if (texts[id].contains(literal))
+				result.add(id);
+		return result.toArray();
+	}
+
+	/**
+	 * @return the positions in both ascending lists, found by binary searching
+	 *         the elements of the shorter @param small in @param large
+	 */
+	private static int[] intersect(int[] small, int[] large) {
+		int[] result = new int[small.length];
+		int count = 0;
+		int from = 0;
+		for (int id : small) {
+			int i = Arrays.binarySearch(large, from, large.length, id);
+			if (i >= 0) {
+				result[count++] = id;
+				from = i + 1;
+			} else {
+				from = -i - 1;
+				if (from == large.length)
+					break;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	private static long key(String text, int start) {
+		return (long) text.charAt(start) << 32 | (long) text.charAt(start + 1) << 16 | text.charAt(start + 2);
+	}
+
+	/**
+	 * Growing list of ascending positions without duplicates.
+	 */
+	private static class Postings {
+		private int[] ids = new int[4];
+		private int size = 0;
+
+		private void add(int id) {
+			if (size > 0 && ids[size - 1] == id)
+				return;
+			if (size == ids.length)
+				ids = Arrays.copyOf(ids, size * 2);
+			ids[size++] = id;
+		}
+
+		private int[] toArray() {
+			return Arrays.copyOf(ids, size);
+		}
+	}
+}
@@ -0,0 +1,291 @@
+package util.collection;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Sorted list of distinct elements with positional access.
+ *
+ * The elements are kept in a treap, a binary search tree balanced by random
+ * priorities, whose nodes also store the size of their subtree. Inserting,
+ * removing and finding elements as well as accessing them by index therefore
+ * take O(log n) expected time. Elements comparing equal to an existing element
+ * are not inserted again.
+ *
+ * The list itself can only be modified through {@link #insert(Object)},
+ * {@link #removeElement(Object)}, {@link #replace(Object)},
+ * {@link #setAll(Collection)} and {@link #clear()}.
+ *
+ * @param <E> type of the elements
+ */
+public class SortedIndex<E> extends AbstractList<E> {
+	private final Comparator<? super E> comparator;
+	private final Random random = new Random();
+	private Node<E> root;
+
+	/**
+	 * @param comparator defining the order of the elements
+	 */
+	public SortedIndex(Comparator<? super E> comparator) {
+		this.comparator = Objects.requireNonNull(comparator);
+	}
+
+	@Override
+	public int size() {
+		return size(root);
+	}
+
+	@Override
+	public E get(int index) {
+		Objects.checkIndex(index, size());
+		Node<E> node = root;
+		while (true) {
+			int leftSize = size(node.left);
+			if (index < leftSize) {
+				node = node.left;
+			} else if (index == leftSize) {
+				return node.element;
+			} else {
+				index -= leftSize + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	/**
+	 * Finds the element comparing equal to @param o in O(log n).
+	 *
+	 * @return the index of the element or -1 if it is not present
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public int indexOf(Object o) {
+		E e = (E) o;
+		Node<E> node = root;
+		int index = 0;
+		while (node != null) {
+			int c = comparator.compare(e, node.element);
+			if (c < 0) {
+				node = node.left;
+			} else if (c == 0) {
+				return index + size(node.left);
+			} else {
+				index += size(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public int lastIndexOf(Object o) {
+		return indexOf(o);
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+
+	/**
+	 * @param e element to look up
+	 * @return the number of elements smaller than @param e, which is the index
+	 *         @param e has or would have after inserting it
+	 */
+	public int insertionIndex(E e) {
+		Node<E> node = root;
+		int index = 0;
+		while (node != null) {
+			if (comparator.compare(e, node.element) <= 0) {
+				node = node.left;
+			} else {
+				index += size(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @param e element to insert
+	 * @return the index of the inserted element or -1 if an equal element is
+	 *         already present
+	 */
+	public int insert(E e) {
+		if (contains(e))
+			return -1;
+		root = insert(root, new Node<>(e, random.nextInt()));
+		return insertionIndex(e);
+	}
+
+	/**
+	 * @param e element to remove
+	 * @return the index the removed element had or -1 if no equal element was
+	 *         present
+	 */
+	public int removeElement(E e) {
+		int index = indexOf(e);
+		if (index >= 0)
+			root = remove(root, e);
+		return index;
+	}
+
+	/**
+	 * Replaces the element comparing equal to @param e with @param e, keeping its
+	 * position.
+	 *
+	 * @return the index of the replaced element or -1 if no equal element is
+	 *         present
+	 */
+	public int replace(E e) {
+		Node<E> node = root;
+		int index = 0;
+		while (node != null) {
+			int c = comparator.compare(e, node.element);
+			if (c < 0) {
+				node = node.left;
+			} else if (c == 0) {
+				node.element = e;
+				return index + size(node.left);
+			} else {
+				index += size(node.left) + 1;
+				node = node.right;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Replaces all elements with the distinct elements of @param elements in
+	 * O(n log n), building a balanced tree at once instead of inserting them one
+	 * by one. Elements that are already sorted are not sorted again.
+	 */
+	public void setAll(Collection<? extends E> elements) {
+		List<E> sorted = new ArrayList<>(elements);
+		if (!isSorted(sorted))
+			sorted.sort(comparator);
+		List<E> distinct = new ArrayList<>(sorted.size());
+		for (E e : sorted)
+			if (distinct.isEmpty() || comparator.compare(distinct.get(distinct.size() - 1), e) != 0)
+				distinct.add(e);
+		root = build(distinct, 0, distinct.size() - 1, 0);
+	}
+
+	@Override
+	public void clear() {
+		root = null;
+	}
+
+	private boolean isSorted(List<E> elements) {
+		for (int i = 1; i < elements.size(); i++)
+			if (comparator.compare(elements.get(i - 1), elements.get(i)) > 0)
+				return false;
+		return true;
+	}
+
+	private Node<E> insert(Node<E> node, Node<E> newNode) {
+		if (node == null)
+			return newNode;
+		if (comparator.compare(newNode.element, node.element) < 0) {
+			node.left = insert(node.left, newNode);
+			if (node.left.priority > node.priority)
+				node = rotateRight(node);
+		} else {
+			node.right = insert(node.right, newNode);
+			if (node.right.priority > node.priority)
+				node = rotateLeft(node);
+		}
+		node.updateSize();
+		return node;
+	}
+
+	private Node<E> remove(Node<E> node, E e) {
+		int c = comparator.compare(e, node.element);
+		if (c == 0)
+			return merge(node.left, node.right);
+		if (c < 0)
+			node.left = remove(node.left, e);
+		else
+			node.right = remove(node.right, e);
+		node.updateSize();
+		return node;
+	}
+
+	/**
+	 * @return the root of a tree with all elements of @param left followed by all
+	 *         elements of @param right
+	 */
+	private Node<E> merge(Node<E> left, Node<E> right) {
+		if (left == null)
+			return right;
+		if (right == null)
+			return left;
+		if (left.priority > right.priority) {
+			left.right = merge(left.right, right);
+			left.updateSize();
+			return left;
+		}
+		right.left = merge(left, right.left);
+		right.updateSize();
+		return right;
+	}
+
+	/**
+	 * Builds a balanced tree whose priorities decrease with the depth, so it is a
+	 * valid treap and new nodes with random priorities mostly end up below it.
+	 */
+	private Node<E> build(List<E> sorted, int from, int to, int depth) {
+		if (from > to)
+			return null;
+		int middle = (from + to) >>> 1;
+		Node<E> node = new Node<>(sorted.get(middle), Integer.MAX_VALUE - depth);
+		node.left = build(sorted, from, middle - 1, depth + 1);
+		node.right = build(sorted, middle + 1, to, depth + 1);
+		node.updateSize();
+		return node;
+	}
+
+	private static <E> Node<E> rotateRight(Node<E> node) {
+		Node<E> left = node.left;
+		node.left = left.right;
+		left.right = node;
+		node.updateSize();
+		left.updateSize();
+		return left;
+	}
+
+	private static <E> Node<E> rotateLeft(Node<E> node) {
+		Node<E> right = node.right;
+		node.right = right.left;
+		right.left = node;
+		node.updateSize();
+		right.updateSize();
+		return right;
+	}
+
+	private static int size(Node<?> node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private static class Node<E> {
+		private E element;
+		private final int priority;
+		private int size = 1;
+		private Node<E> left;
+		private Node<E> right;
+
+		private Node(E element, int priority) {
+			this.element = element;
+			this.priority = priority;
+		}
+
+		private void updateSize() {
+			size = 1 + size(left) + size(right);
+		}
+	}
+}
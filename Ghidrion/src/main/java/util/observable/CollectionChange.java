@@ -0,0 +1,106 @@
+package util.observable;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Describes a change of an {@link ObservableCollection}: either the elements
+ * that have been added and removed, or that the whole content has been
+ * replaced.
+ *
+ * If an element has been replaced by an equal one (e.g. using
+ * {@link ObservableCollection#update(Object)}), it is contained in both
+ * {@link #getRemoved()} and {@link #getAdded()}. Removals are meant to be
+ * applied before additions.
+ *
+ * The collections are only guaranteed to be valid while the observers are
+ * being notified and must not be modified.
+ */
+public class CollectionChange<E> {
+    private static final CollectionChange<?> NONE = new CollectionChange<>(
+            Collections.emptyList(), Collections.emptyList(), false);
+    private static final CollectionChange<?> REPLACED_ALL = new CollectionChange<>(
+            Collections.emptyList(), Collections.emptyList(), true);
+
+    private final Collection<E> added;
+    private final Collection<E> removed;
+    private final boolean replacedAll;
+
+    private CollectionChange(Collection<E> added, Collection<E> removed, boolean replacedAll) {
+        this.added = added;
+        this.removed = removed;
+        this.replacedAll = replacedAll;
+    }
+
+    /**
+     * @param added   elements that have been added
+     * @param removed elements that have been removed
+     * @return a change adding @param added and removing @param removed
+     */
+    public static <E> CollectionChange<E> of(Collection<E> added, Collection<E> removed) {
+        if (added.isEmpty() && removed.isEmpty())
+            return none();
+        return new CollectionChange<>(added, removed, false);
+    }
+
+    /**
+     * @param added elements that have been added
+     * @return a change only adding @param added
+     */
+    public static <E> CollectionChange<E> added(Collection<E> added) {
+        return of(added, Collections.emptyList());
+    }
+
+    /**
+     * @param removed elements that have been removed
+     * @return a change only removing @param removed
+     */
+    public static <E> CollectionChange<E> removed(Collection<E> removed) {
+        return of(Collections.emptyList(), removed);
+    }
+
+    /**
+     * @return a change that didn't modify the collection
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> CollectionChange<E> none() {
+        return (CollectionChange<E>) NONE;
+    }
+
+    /**
+     * @return a change replacing all elements, observers have to read the
+     *         collection again
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> CollectionChange<E> replacedAll() {
+        return (CollectionChange<E>) REPLACED_ALL;
+    }
+
+    /**
+     * @return the added elements, empty if {@link #isReplacedAll()}
+     */
+    public Collection<E> getAdded() {
+        return added;
+    }
+
+    /**
+     * @return the removed elements, empty if {@link #isReplacedAll()}
+     */
+    public Collection<E> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * @return {@code true} if the whole content may have changed
+     */
+    public boolean isReplacedAll() {
+        return replacedAll;
+    }
+
+    /**
+     * @return {@code true} if the collection hasn't been modified
+     */
+    public boolean isEmpty() {
+        return !replacedAll && added.isEmpty() && removed.isEmpty();
+    }
+}
@@ -7,9 +7,16 @@ import java.util.function.Consumer;
 /**
  * Provides a wrapper for any element where objects can subscribe to changes.
  * What those changes are is left up to the implementation.
+ * 
+ * Several changes can be grouped into a {@link Batch}. While a batch is open,
+ * no observers are notified. When the outermost batch is closed, the observers
+ * are notified once with the latest value, if anything has changed.
  */
 public abstract class Observable<E> {
     private List<Consumer<E>> observers = new ArrayList<>();
+    private int batchDepth = 0;
+    private boolean batchChanged = false;
+    private E batchValue;
 
     /**
      * @param observer triggered whenever the content changed
@@ -24,9 +31,108 @@ public abstract class Observable<E> {
     }
 
     /**
-     * @param e the new value to be sent to all observers
+     * @param e the new value to be sent to all observers, delayed until the
+     *          end of the current {@link Batch} if there is one
      */
     protected void notifyObservers(E e) {
+        if (isBatching()) {
+            batchChanged = true;
+            batchValue = e;
+            return;
+        }
         observers.forEach(o -> o.accept(e));
     }
+
+    /**
+     * Starts a batch, which has to be closed, e.g. using try-with-resources.
+     * Batches can be nested, only closing the outermost one notifies the
+     * observers.
+     * 
+     * @return the started batch
+     */
+    public Batch batch() {
+        batchDepth++;
+        return new Batch() {
+            private boolean closed = false;
+
+            @Override
+            public void close() {
+                if (closed)
+                    return;
+                closed = true;
+                batchDepth--; // restored before committing, which may throw
+                if (batchDepth == 0)
+                    commitBatch();
+            }
+        };
+    }
+
+    /**
+     * Runs @param action in a {@link Batch}, so that the observers are notified
+     * at most once.
+     */
+    public void batch(Runnable action) {
+        try (Batch b = batch()) {
+            action.run();
+        }
+    }
+
+    /**
+     * @return {@code true} if a {@link Batch} is open
+     */
+    protected boolean isBatching() {
+        return batchDepth > 0;
+    }
+
+    /**
+     * Called when the outermost {@link Batch} is closed. Notifies the observers
+     * with the latest value if anything has changed during the batch. The batch
+     * state is reset before any observer is called, so an observer that throws
+     * doesn't leave stale changes behind.
+     */
+    protected void commitBatch() {
+        if (!batchChanged)
+            return;
+        E e = batchValue;
+        batchChanged = false;
+        batchValue = null;
+        notifyObservers(e);
+    }
+
+    /**
+     * Starts a batch on each of @param observables, which are committed in the
+     * given order when the returned batch is closed. Every batch is closed even
+     * if an observer throws while an earlier one is committed; the first
+     * exception is rethrown afterwards.
+     * 
+     * @return the started batch
+     */
+    public static Batch batchAll(List<? extends Observable<?>> observables) {
+        List<Batch> batches = new ArrayList<>();
+        observables.forEach(o -> batches.add(o.batch()));
+        return () -> {
+            RuntimeException failure = null;
+            for (Batch batch : batches) {
+                try {
+                    batch.close();
+                } catch (RuntimeException e) {
+                    if (failure == null)
+                        failure = e;
+                    else
+                        failure.addSuppressed(e);
+                }
+            }
+            if (failure != null)
+                throw failure;
+        };
+    }
+
+    /**
+     * Group of changes of an {@link Observable} that is reported to the
+     * observers at once when it is closed.
+     */
+    public interface Batch extends AutoCloseable {
+        @Override
+        void close();
+    }
 }
@@ -1,8 +1,16 @@
 package util.observable;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * {@link util.observable.Observable} collection. Updates trigger on any action
@@ -10,21 +18,115 @@ import java.util.Objects;
  * changes the contents of the collection. Contains additional methods that
  * allow executing multiple actions before triggering an update to improve
  * performance.
+ * 
+ * Observers added with {@link #addObserver(Consumer)} receive the whole
+ * collection. Observers added with {@link #addChangeObserver(Consumer)} receive
+ * a {@link CollectionChange} with only the added and removed elements, so they
+ * can update in proportion to the change instead of the collection size.
+ * Within a {@link Observable.Batch}, the changes are merged into a single
+ * {@link CollectionChange}.
  */
 public class ObservableCollection<E, C extends Collection<E>> extends Observable<C> implements Collection<E> {
     private final C collection;
+    private final List<Consumer<CollectionChange<E>>> changeObservers = new ArrayList<>();
+    private final List<CollectionChange<E>> batchChanges = new ArrayList<>();
 
     public ObservableCollection(C collection) {
         this.collection = Objects.requireNonNull(collection);
     }
 
+    /**
+     * @param observer triggered with the added and removed elements whenever the
+     *                 content changed
+     * @return {@code true} as specified by {@link java.util.Collection#add(Object)}
+     */
+    public boolean addChangeObserver(Consumer<CollectionChange<E>> observer) {
+        return changeObservers.add(observer);
+    }
+
+    public boolean removeChangeObserver(Consumer<CollectionChange<E>> observer) {
+        return changeObservers.remove(observer);
+    }
+
+    /**
+     * Notifies the observers of the whole collection and, unless @param change
+     * is empty, the change observers.
+     * 
+     * @param change of the collection since the last notification
+     */
+    protected void notifyObservers(CollectionChange<E> change) {
+        notifyObservers(collection);
+        if (change.isEmpty())
+            return;
+        if (isBatching())
+            batchChanges.add(change);
+        else
+            changeObservers.forEach(o -> o.accept(change));
+    }
+
+    @Override
+    protected void commitBatch() {
+        CollectionChange<E> change = batchChanges.isEmpty() ? CollectionChange.none() : mergeChanges(batchChanges);
+        batchChanges.clear();
+        try {
+            super.commitBatch();
+        } finally {
+            if (!change.isEmpty()) // the changes of the batch may cancel each other out
+                changeObservers.forEach(o -> o.accept(change));
+        }
+    }
+
+    /**
+     * Merges the changes of a batch into one. For sets the result contains every
+     * element that was present before the batch and has been removed during it,
+     * and every element that has been added and is still present, with its
+     * latest instance. Elements first added and then removed within the batch
+     * are not reported at all. If the changes are larger than the collection
+     * itself or the collection may contain duplicates, all elements are reported
+     * as replaced instead.
+     * 
+     * @param changes of the batch in the order they happened, at least one
+     * @return the merged change
+     */
+    protected CollectionChange<E> mergeChanges(List<CollectionChange<E>> changes) {
+        if (changes.size() == 1)
+            return changes.get(0);
+        long changedElements = 0;
+        for (CollectionChange<E> change : changes) {
+            if (change.isReplacedAll())
+                return CollectionChange.replacedAll();
+            changedElements += change.getAdded().size() + change.getRemoved().size();
+        }
+        if (!(collection instanceof Set) || changedElements > collection.size())
+            return CollectionChange.replacedAll();
+
+        Set<E> touched = new HashSet<>(); // elements removed or added by an earlier change
+        Map<E, E> removed = new LinkedHashMap<>();
+        Map<E, E> added = new LinkedHashMap<>();
+        for (CollectionChange<E> change : changes) {
+            for (E e : change.getRemoved())
+                if (touched.add(e)) // only present before the batch if not added before
+                    removed.put(e, e);
+            for (E e : change.getAdded()) {
+                touched.add(e);
+                added.put(e, e);
+            }
+        }
+        added.keySet().removeIf(e -> !collection.contains(e));
+        return CollectionChange.of(new ArrayList<>(added.values()), new ArrayList<>(removed.values()));
+    }
+
     /**
      * @param e first gets removed if present and then re-added.
      * @return same value as {@link ObservableCollection#add(Object)}.
      */
     public boolean update(E e) {
-        collection.remove(e);
-        return add(e);
+        boolean removed = collection.remove(e);
+        boolean r = collection.add(e);
+        notifyObservers(CollectionChange.of(
+                r ? Collections.singletonList(e) : Collections.emptyList(),
+                removed ? Collections.singletonList(e) : Collections.emptyList()));
+        return r;
     }
 
     /**
@@ -32,8 +134,10 @@ public class ObservableCollection<E, C extends Collection<E>> extends Observable
      * @return same value as {@link ObservableCollection#addAll(Collection)}.
      */
     public boolean updateAll(Collection<E> es) {
-        collection.removeAll(es);
-        return addAll(es);
+        List<E> removed = removeEach(es);
+        List<E> added = addEach(es);
+        notifyObservers(CollectionChange.of(added, removed));
+        return !added.isEmpty();
     }
 
     /**
@@ -42,7 +146,9 @@ public class ObservableCollection<E, C extends Collection<E>> extends Observable
      */
     public boolean replaceContent(Collection<E> newContent) {
         collection.clear();
-        return addAll(newContent);
+        boolean r = collection.addAll(newContent);
+        notifyObservers(CollectionChange.replacedAll());
+        return r;
     }
 
     @Override
@@ -89,14 +195,15 @@ public class ObservableCollection<E, C extends Collection<E>> extends Observable
     @Override
     public boolean add(E e) {
         boolean r = collection.add(e);
-        notifyObservers(collection);
+        notifyObservers(r ? CollectionChange.added(Collections.singletonList(e)) : CollectionChange.none());
         return r;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public boolean remove(Object o) {
         boolean r = collection.remove(o);
-        notifyObservers(collection);
+        notifyObservers(r ? CollectionChange.removed(Collections.singletonList((E) o)) : CollectionChange.none());
         return r;
     }
 
@@ -107,28 +214,57 @@ public class ObservableCollection<E, C extends Collection<E>> extends Observable
 
     @Override
     public boolean addAll(Collection<? extends E> c) {
-        boolean r = collection.addAll(c);
-        notifyObservers(collection);
-        return r;
+        List<E> added = addEach(c);
+        notifyObservers(CollectionChange.added(added));
+        return !added.isEmpty();
     }
 
     @Override
     public boolean retainAll(Collection<?> c) {
-        boolean r = collection.retainAll(c);
-        notifyObservers(collection);
-        return r;
+        List<E> toRemove = new ArrayList<>();
+        for (E e : collection)
+            if (!c.contains(e))
+                toRemove.add(e);
+        List<E> removed = removeEach(toRemove);
+        notifyObservers(CollectionChange.removed(removed));
+        return !removed.isEmpty();
     }
 
     @Override
     public boolean removeAll(Collection<?> c) {
-        boolean r = collection.removeAll(c);
-        notifyObservers(collection);
-        return r;
+        List<E> removed = removeEach(c);
+        notifyObservers(CollectionChange.removed(removed));
+        return !removed.isEmpty();
     }
 
     @Override
     public void clear() {
         collection.clear();
-        notifyObservers(collection);
+        notifyObservers(CollectionChange.replacedAll());
+    }
+
+    /**
+     * @return the elements of @param c that have actually been added
+     */
+    private List<E> addEach(Collection<? extends E> c) {
+        List<E> added = new ArrayList<>();
+        for (E e : c)
+            if (collection.add(e))
+                added.add(e);
+        return added;
+    }
+
+    /**
+     * Removes all occurrences of the elements of @param c.
+     * 
+     * @return the elements that have actually been removed, once per occurrence
+     */
+    @SuppressWarnings("unchecked")
+    private List<E> removeEach(Collection<?> c) {
+        List<E> removed = new ArrayList<>();
+        for (Object o : c)
+            while (collection.remove(o))
+                removed.add((E) o);
+        return removed;
     }
 }
@@ -11,4 +11,12 @@ public class ObservableSet<E extends Comparable<E>> extends ObservableCollection
     public ObservableSet() {
         super(new HashSet<>());
     }
+
+    /**
+     * @param set implementation to use internally instead of a
+     *            {@link java.util.HashSet}
+     */
+    protected ObservableSet(Set<E> set) {
+        super(set);
+    }
 }
@@ -2,8 +2,6 @@ package util.yaml;
 
 import java.awt.Component;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 
 import javax.swing.JFileChooser;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -16,27 +14,6 @@ import ui.ctrl.TraceFileNotFoundException;
  */
 public class FileHelper {
 
-	/**
-	 * Retrieves a FileInputStream of a YAML file selected by the user.
-	 *
-	 * @param parent the parent component used for displaying the file chooser
-	 *               dialog
-	 * @return a FileInputStream for the selected YAML file
-	 * @throws TraceFileNotFoundException if the selected file is not found
-	 */
-	public static FileInputStream getFileStreamToLoad(Component parent) throws TraceFileNotFoundException {
-		File file = chooseFile(parent);
-
-		FileInputStream input;
-		try {
-			input = new FileInputStream(file);
-		} catch (FileNotFoundException e) {
-			throw new TraceFileNotFoundException();
-		}
-
-		return input;
-	}
-
 	/**
 	 * Displays a file chooser dialog for selecting a YAML file.
 	 *
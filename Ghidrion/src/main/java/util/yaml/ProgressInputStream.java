@@ -0,0 +1,64 @@
+package util.yaml;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * {@link FilterInputStream} that reports the number of bytes read as progress
+ * to a {@link TaskMonitor} and stops reading once the monitor is cancelled.
+ */
+public class ProgressInputStream extends FilterInputStream {
+	private final TaskMonitor monitor;
+	private long bytesRead = 0;
+
+	/**
+	 * @param in      to read from
+	 * @param monitor to report the progress to
+	 */
+	public ProgressInputStream(InputStream in, TaskMonitor monitor) {
+		super(in);
+		this.monitor = monitor;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b >= 0)
+			progress(1);
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = super.read(b, off, len);
+		if (n > 0)
+			progress(n);
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		progress(skipped);
+		return skipped;
+	}
+
+	private void progress(long n) throws CancelledIOException {
+		if (monitor.isCancelled())
+			throw new CancelledIOException();
+		bytesRead += n;
+		monitor.setProgress(bytesRead);
+	}
+
+	/**
+	 * Thrown when reading from a stream whose monitor has been cancelled.
+	 */
+	public static class CancelledIOException extends IOException {
+		public CancelledIOException() {
+			super("Reading the trace file has been cancelled");
+		}
+	}
+}
@@ -0,0 +1,61 @@
+package util.yaml;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link FilterInputStream} that fails as soon as more than a maximum number
+ * of bytes has been read.
+ */
+public class SizeLimitedInputStream extends FilterInputStream {
+	private final long maxBytes;
+	private long bytesRead = 0;
+
+	/**
+	 * @param in       to read from
+	 * @param maxBytes maximum number of bytes that can be read from @param in
+	 */
+	public SizeLimitedInputStream(InputStream in, long maxBytes) {
+		super(in);
+		this.maxBytes = maxBytes;
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = super.read();
+		if (b >= 0)
+			count(1);
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = super.read(b, off, len);
+		if (n > 0)
+			count(n);
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = super.skip(n);
+		count(skipped);
+		return skipped;
+	}
+
+	private void count(long n) throws LimitExceededException {
+		bytesRead += n;
+		if (bytesRead > maxBytes)
+			throw new LimitExceededException(maxBytes);
+	}
+
+	/**
+	 * Thrown if more than the maximum number of bytes is read.
+	 */
+	public static class LimitExceededException extends IOException {
+		public LimitExceededException(long maxBytes) {
+			super("The trace file exceeds the limit of " + maxBytes + " bytes");
+		}
+	}
+}
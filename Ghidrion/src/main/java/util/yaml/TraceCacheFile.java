@@ -0,0 +1,582 @@
+package util.yaml;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+import ghidra.program.model.address.Address;
+import ghidra.program.model.address.AddressFactory;
+import ghidra.program.model.address.AddressSpace;
+import ghidra.util.Msg;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
+import model.Hook;
+import model.Hook.Mode;
+import model.Instruction;
+import model.MemoryEntry;
+import model.MemoryStore;
+import model.MorionInitTraceFile;
+import model.MorionTraceFile;
+import model.TraceStream;
+import util.observable.Observable.Batch;
+
+/**
+ * Compact binary copy of a parsed Morion YAML file, stored next to the YAML
+ * file. Reopening a trace whose cache is still valid maps the cache into memory
+ * instead of parsing the YAML file again. The cache is mapped in windows of at
+ * most {@value #MAX_WINDOW_SIZE} bytes, as a single mapping is limited to 2 GB,
+ * and the offset and step columns are copied window by window in bulk.
+ *
+ * The cache holds all text (machine code, assembly, names and values) in an
+ * interned string pool, the distinct instruction addresses as a column of
+ * offsets into the address space of the trace, the executed steps as a column
+ * of indices into the distinct instructions, the memory states as runs of a
+ * {@link MemoryStore}, and the hooks and registers as small tables.
+ *
+ * A cache is only used if the size, the modification time and a fingerprint
+ * (a CRC32C of the first and last {@value #FINGERPRINT_SAMPLE_SIZE} bytes) of
+ * the YAML file still match the ones recorded when the cache was written.
+ */
+public class TraceCacheFile {
+	public static final String SUFFIX = ".ghidrion";
+
+	private static final int MAGIC = 0x47545243; // "GTRC"
+	private static final int VERSION = 3;
+	private static final int FLAG_TRACED = 1; // instructions and leave state are included
+	private static final int FINGERPRINT_SAMPLE_SIZE = 1024 * 1024;
+	private static final int MONITOR_INTERVAL = 0x10000;
+	private static final int NULL_STRING = -1; // string pool index of null
+	private static final int MAX_WINDOW_SIZE = 1 << 30;
+	private static final int STEP_CHUNK_SIZE = 1 << 16; // steps copied from the cache at once
+
+	private final File yamlFile;
+	private final File cacheFile;
+
+	/**
+	 * @param yamlFile the cache belongs to
+	 */
+	public TraceCacheFile(File yamlFile) {
+		this.yamlFile = Objects.requireNonNull(yamlFile);
+		this.cacheFile = new File(yamlFile.getPath() + SUFFIX);
+	}
+
+	public File getCacheFile() {
+		return cacheFile;
+	}
+
+	/**
+	 * @return the state of the YAML file on disk, to be passed to
+	 *         {@link #write(YamlState, MorionInitTraceFile, MorionTraceFile, AddressFactory)}
+	 * @throws IOException if the YAML file can't be read
+	 */
+	public YamlState readYamlState() throws IOException {
+		Path path = yamlFile.toPath();
+		long size = Files.size(path);
+		long modified = Files.getLastModifiedTime(path).toMillis();
+		CRC32C crc = new CRC32C();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			crc.update(channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, FINGERPRINT_SAMPLE_SIZE)));
+			long tailStart = Math.max(FINGERPRINT_SAMPLE_SIZE, size - FINGERPRINT_SAMPLE_SIZE);
+			if (tailStart < size)
+				crc.update(channel.map(FileChannel.MapMode.READ_ONLY, tailStart, size - tailStart));
+		}
+		return new YamlState(size, modified, crc.getValue());
+	}
+
+	/**
+	 * Fills @param initTraceFile (and @param traceFile if it is not {@code null})
+	 * from the cache. Nothing is changed if the cache is missing, outdated,
+	 * corrupt or doesn't contain everything needed.
+	 *
+	 * @param initTraceFile  to write hooks and the entry state to
+	 * @param traceFile      to write instructions and the leave state to, or
+	 *                       {@code null} if only an init trace file is loaded
+	 * @param addressFactory to create {@link Address} objects
+	 * @param monitor        to check for cancellation
+	 * @return {@code true} if the trace file has been loaded from the cache
+	 * @throws CancelledException if @param monitor has been cancelled
+	 */
+	public boolean read(MorionInitTraceFile initTraceFile, MorionTraceFile traceFile, AddressFactory addressFactory,
+			TaskMonitor monitor) throws CancelledException {
+		if (!cacheFile.isFile())
+			return false;
+		try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+			MappedInput in = new MappedInput(channel);
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				return false;
+			int flags = in.readInt();
+			YamlState cachedState = new YamlState(in.readLong(), in.readLong(), in.readLong());
+			if (traceFile != null && (flags & FLAG_TRACED) == 0)
+				return false;
+			if (!cachedState.equals(readYamlState()))
+				return false;
+
+			String[] strings = readStrings(in);
+			AddressSpace space = addressFactory.getAddressSpace(string(strings, in.readInt()));
+			if (space == null)
+				return false;
+			Address entryAddress = readOptionalAddress(in, space);
+			Address leaveAddress = readOptionalAddress(in, space);
+			Set<Hook> hooks = readHooks(in, strings, space);
+			MemoryStore entryMemory = readMemory(in);
+			List<MemoryEntry> entryRegisters = readMemoryEntries(in, strings);
+
+			MemoryStore leaveMemory = null;
+			List<MemoryEntry> leaveRegisters = null;
+			TraceStream instructions = null;
+			if (traceFile != null) {
+				leaveMemory = readMemory(in);
+				leaveRegisters = readMemoryEntries(in, strings);
+				instructions = readInstructions(in, strings, space, monitor);
+			}
+
+			try (Batch b = initTraceFile.batch()) {
+				initTraceFile.clear();
+				initTraceFile.getHooks().updateAll(hooks);
+				initTraceFile.getEntryMemory().updateAll(entryMemory);
+				initTraceFile.getEntryRegisters().updateAll(entryRegisters);
+				if (traceFile != null) {
+					traceFile.setEntryAddress(entryAddress);
+					traceFile.setLeaveAddress(leaveAddress);
+					traceFile.getLeaveMemory().updateAll(leaveMemory);
+					traceFile.getLeaveRegisters().updateAll(leaveRegisters);
+					traceFile.getInstructions().replaceContent(instructions);
+				}
+			}
+			return true;
+		} catch (IOException | IndexOutOfBoundsException | NegativeArraySizeException | IllegalArgumentException
+				| ArithmeticException e) { // EOFException if the cache is truncated
+			Msg.warn(this, "Ignoring unreadable trace cache " + cacheFile, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the content of @param initTraceFile (and @param traceFile if it is
+	 * not {@code null}) to the cache. The cache is not written if the YAML file
+	 * changed since @param yamlState has been read, or if the trace file uses
+	 * addresses of more than one address space. Failing to write the
+	 * cache is logged, but not reported to the user.
+	 *
+	 * @param yamlState      of the YAML file before it was parsed
+	 * @param initTraceFile  parsed hooks and entry state
+	 * @param traceFile      parsed instructions and leave state, or
+	 *                       {@code null} if only an init trace file has been
+	 *                       loaded
+	 * @param addressFactory used to parse the trace file
+	 */
+	public void write(YamlState yamlState, MorionInitTraceFile initTraceFile, MorionTraceFile traceFile,
+			AddressFactory addressFactory) {
+		Path tempPath = null;
+		try {
+			if (!yamlState.equals(readYamlState()))
+				return;
+			AddressSpace space = findAddressSpace(initTraceFile, traceFile,
+					addressFactory.getDefaultAddressSpace());
+			if (space == null)
+				return;
+
+			tempPath = Files.createTempFile(cacheFile.getAbsoluteFile().getParentFile().toPath(),
+					cacheFile.getName(), ".tmp");
+			try (OutputStream stream = Files.newOutputStream(tempPath)) {
+				writeContent(new DataOutputStream(new BufferedOutputStream(stream)), yamlState, space,
+						initTraceFile, traceFile);
+			}
+			Files.move(tempPath, cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | UnsupportedOperationException e) {
+			Msg.warn(this, "Unable to write trace cache " + cacheFile, e);
+			try {
+				if (tempPath != null)
+					Files.deleteIfExists(tempPath);
+			} catch (IOException ignored) {
+				// nothing left to clean up
+			}
+		}
+	}
+
+	private void writeContent(DataOutputStream out, YamlState yamlState, AddressSpace space,
+			MorionInitTraceFile initTraceFile, MorionTraceFile traceFile) throws IOException {
+		StringPool pool = new StringPool();
+		int spaceName = pool.intern(space.getName());
+		List<Hook> hooks = new ArrayList<>(initTraceFile.getHooks());
+		TraceStream instructions = traceFile == null ? new TraceStream() : traceFile.getInstructions();
+		int[] hookStrings = new int[hooks.size() * 2];
+		for (int i = 0; i < hooks.size(); i++) {
+			hookStrings[2 * i] = pool.intern(hooks.get(i).getLibraryName());
+			hookStrings[2 * i + 1] = pool.intern(hooks.get(i).getFunctionName());
+		}
+		int[] entryRegisters = internMemoryEntries(pool, initTraceFile.getEntryRegisters());
+		int[] leaveRegisters = traceFile == null ? null : internMemoryEntries(pool, traceFile.getLeaveRegisters());
+		int[] instructionStrings = new int[instructions.getInstructionCount() * 3];
+		for (int i = 0; i < instructions.getInstructionCount(); i++) {
+			Instruction instruction = instructions.getInstruction(i);
+			instructionStrings[3 * i] = pool.intern(instruction.getMachineCode());
+			instructionStrings[3 * i + 1] = pool.intern(instruction.getAssemblyCode());
+			instructionStrings[3 * i + 2] = pool.intern(instruction.getCode());
+		}
+
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeInt(traceFile == null ? 0 : FLAG_TRACED);
+		out.writeLong(yamlState.size);
+		out.writeLong(yamlState.modified);
+		out.writeLong(yamlState.fingerprint);
+		pool.write(out);
+		out.writeInt(spaceName);
+		writeOptionalAddress(out, traceFile == null ? null : traceFile.getEntryAddress());
+		writeOptionalAddress(out, traceFile == null ? null : traceFile.getLeaveAddress());
+
+		out.writeInt(hooks.size());
+		for (int i = 0; i < hooks.size(); i++) {
+			Hook hook = hooks.get(i);
+			out.writeInt(hookStrings[2 * i]);
+			out.writeInt(hookStrings[2 * i + 1]);
+			out.writeLong(hook.getEntryAddress().getOffset());
+			out.writeLong(hook.getLeaveAddress().getOffset());
+			out.writeByte(hook.getMode().ordinal());
+		}
+
+		writeMemory(out, initTraceFile.getEntryMemory().getStore());
+		writeMemoryEntries(out, entryRegisters);
+		if (traceFile != null) {
+			writeMemory(out, traceFile.getLeaveMemory().getStore());
+			writeMemoryEntries(out, leaveRegisters);
+		}
+
+		out.writeInt(instructions.getInstructionCount());
+		for (int i = 0; i < instructions.getInstructionCount(); i++)
+			out.writeLong(instructions.getInstructionOffset(i));
+		for (int value : instructionStrings)
+			out.writeInt(value);
+		out.writeInt(instructions.getStepCount());
+		for (int step = 0; step < instructions.getStepCount(); step++)
+			out.writeInt(instructions.getStepIndex(step));
+		out.flush();
+	}
+
+	/**
+	 * @return the only address space used by the trace file, @param defaultSpace
+	 *         if it doesn't contain any address, or {@code null} if addresses of
+	 *         different address spaces are used
+	 */
+	private static AddressSpace findAddressSpace(MorionInitTraceFile initTraceFile, MorionTraceFile traceFile,
+			AddressSpace defaultSpace) {
+		List<Address> addresses = new ArrayList<>();
+		for (Hook hook : initTraceFile.getHooks()) {
+			addresses.add(hook.getEntryAddress());
+			addresses.add(hook.getLeaveAddress());
+		}
+		if (traceFile != null) {
+			addresses.add(traceFile.getEntryAddress());
+			addresses.add(traceFile.getLeaveAddress());
+			if (!traceFile.getInstructions().isEmpty())
+				addresses.add(traceFile.getInstructions().getInstruction(0).getAddress());
+		}
+		AddressSpace space = null;
+		for (Address address : addresses) {
+			if (address == null)
+				continue;
+			if (space == null)
+				space = address.getAddressSpace();
+			else if (!space.equals(address.getAddressSpace()))
+				return null;
+		}
+		return space == null ? defaultSpace : space;
+	}
+
+	/**
+	 * @return name, value and symbolic flag of every entry, three ints per entry
+	 */
+	private static int[] internMemoryEntries(StringPool pool, Collection<MemoryEntry> entries) {
+		int[] table = new int[entries.size() * 3];
+		int i = 0;
+		for (MemoryEntry entry : entries) {
+			table[i++] = pool.intern(entry.getName());
+			table[i++] = pool.intern(entry.getValue());
+			table[i++] = entry.isSymbolic() ? 1 : 0;
+		}
+		return table;
+	}
+
+	private static void writeMemoryEntries(DataOutputStream out, int[] table) throws IOException {
+		out.writeInt(table.length / 3);
+		for (int value : table)
+			out.writeInt(value);
+	}
+
+	/**
+	 * Writes every run with its start, length, symbolic flag and either the
+	 * single value of a filled run or all values.
+	 */
+	private static void writeMemory(DataOutputStream out, MemoryStore memory) throws IOException {
+		out.writeInt(memory.getRuns().size());
+		for (MemoryStore.Run run : memory.getRuns()) {
+			out.writeLong(run.getStart());
+			out.writeLong(run.getLength());
+			out.writeBoolean(run.isSymbolic());
+			out.writeBoolean(run.isFilled());
+			if (run.isFilled()) {
+				out.writeByte(run.getValue(run.getStart()));
+			} else {
+				for (long address = run.getStart(); address <= run.getEnd(); address++)
+					out.writeByte(run.getValue(address));
+			}
+		}
+	}
+
+	private static void writeOptionalAddress(DataOutputStream out, Address address) throws IOException {
+		out.writeBoolean(address != null);
+		out.writeLong(address == null ? 0 : address.getOffset());
+	}
+
+	private static String[] readStrings(MappedInput in) throws IOException {
+		String[] strings = new String[in.readInt()];
+		for (int i = 0; i < strings.length; i++) {
+			byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			strings[i] = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return strings;
+	}
+
+	private static String string(String[] strings, int index) {
+		return index == NULL_STRING ? null : strings[index];
+	}
+
+	private static Address readOptionalAddress(MappedInput in, AddressSpace space) throws IOException {
+		boolean present = in.readBoolean();
+		long offset = in.readLong();
+		return present ? space.getAddress(offset) : null;
+	}
+
+	private static Set<Hook> readHooks(MappedInput in, String[] strings, AddressSpace space) throws IOException {
+		int count = in.readInt();
+		Set<Hook> hooks = new HashSet<>();
+		for (int i = 0; i < count; i++) {
+			String libraryName = string(strings, in.readInt());
+			String functionName = string(strings, in.readInt());
+			Address entry = space.getAddress(in.readLong());
+			Address leave = space.getAddress(in.readLong());
+			Mode mode = Mode.values()[in.readByte()];
+			hooks.add(new Hook(libraryName, functionName, entry, leave, mode));
+		}
+		return hooks;
+	}
+
+	private static MemoryStore readMemory(MappedInput in) throws IOException {
+		int count = in.readInt();
+		MemoryStore memory = new MemoryStore();
+		for (int i = 0; i < count; i++) {
+			long start = in.readLong();
+			long length = in.readLong();
+			boolean symbolic = in.readBoolean();
+			if (in.readBoolean()) {
+				memory.fill(start, start + length - 1, in.readByte(), symbolic);
+			} else {
+				byte[] values = new byte[Math.toIntExact(length)];
+				in.readFully(values);
+				memory.write(start, values, symbolic);
+			}
+		}
+		return memory;
+	}
+
+	private static List<MemoryEntry> readMemoryEntries(MappedInput in, String[] strings) throws IOException {
+		int count = in.readInt();
+		List<MemoryEntry> entries = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			String name = string(strings, in.readInt());
+			String value = string(strings, in.readInt());
+			entries.add(new MemoryEntry(name, value, in.readInt() != 0));
+		}
+		return entries;
+	}
+
+	private static TraceStream readInstructions(MappedInput in, String[] strings, AddressSpace space,
+			TaskMonitor monitor) throws IOException, CancelledException {
+		int count = in.readInt();
+		long[] offsets = new long[count];
+		in.readLongs(offsets, 0, count);
+		Instruction[] instructions = new Instruction[count];
+		for (int i = 0; i < count; i++) {
+			if (i % MONITOR_INTERVAL == 0)
+				monitor.checkCanceled();
+			String machineCode = string(strings, in.readInt());
+			String assemblyCode = string(strings, in.readInt());
+			String sourceCode = string(strings, in.readInt());
+			instructions[i] = new Instruction(space.getAddress(offsets[i]), machineCode, assemblyCode, sourceCode);
+		}
+
+		TraceStream stream = new TraceStream();
+		int stepCount = in.readInt();
+		int[] steps = new int[Math.min(stepCount, STEP_CHUNK_SIZE)];
+		for (int step = 0; step < stepCount; step += steps.length) {
+			monitor.checkCanceled();
+			int length = Math.min(steps.length, stepCount - step);
+			in.readInts(steps, 0, length);
+			for (int i = 0; i < length; i++)
+				stream.append(instructions[steps[i]]);
+		}
+		return stream;
+	}
+
+	/**
+	 * Size, modification time and fingerprint of a YAML file.
+	 */
+	public static class YamlState {
+		private final long size;
+		private final long modified;
+		private final long fingerprint;
+
+		private YamlState(long size, long modified, long fingerprint) {
+			this.size = size;
+			this.modified = modified;
+			this.fingerprint = fingerprint;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			YamlState other = (YamlState) obj;
+			return size == other.size && modified == other.modified && fingerprint == other.fingerprint;
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(size, modified, fingerprint);
+		}
+	}
+
+	/**
+	 * Reads a cache file through read-only mappings of at most
+	 * {@value #MAX_WINDOW_SIZE} bytes. When a value doesn't fit into the
+	 * remaining window, the next window is mapped starting at the value.
+	 */
+	private static class MappedInput {
+		private final FileChannel channel;
+		private final long size;
+		private MappedByteBuffer window;
+		private long windowStart = 0;
+
+		private MappedInput(FileChannel channel) throws IOException {
+			this.channel = channel;
+			this.size = channel.size();
+			map(0);
+		}
+
+		private void map(long start) throws IOException {
+			windowStart = start;
+			window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAX_WINDOW_SIZE, size - start));
+		}
+
+		/**
+		 * Makes sure the window contains at least the next @param bytes bytes.
+		 */
+		private void require(int bytes) throws IOException {
+			if (window.remaining() >= bytes)
+				return;
+			long position = windowStart + window.position();
+			if (position + bytes > size)
+				throw new EOFException("Trace cache ends at " + size);
+			map(position);
+		}
+
+		private int readInt() throws IOException {
+			require(Integer.BYTES);
+			return window.getInt();
+		}
+
+		private long readLong() throws IOException {
+			require(Long.BYTES);
+			return window.getLong();
+		}
+
+		private byte readByte() throws IOException {
+			require(Byte.BYTES);
+			return window.get();
+		}
+
+		private boolean readBoolean() throws IOException {
+			return readByte() != 0;
+		}
+
+		private void readFully(byte[] values) throws IOException {
+			for (int i = 0; i < values.length;) {
+				require(1);
+				int length = Math.min(window.remaining(), values.length - i);
+				window.get(values, i, length);
+				i += length;
+			}
+		}
+
+		private void readLongs(long[] values, int offset, int length) throws IOException {
+			for (int i = 0; i < length;) {
+				require(Long.BYTES);
+				int n = Math.min(window.remaining() / Long.BYTES, length - i);
+				window.asLongBuffer().get(values, offset + i, n);
+				window.position(window.position() + n * Long.BYTES);
+				i += n;
+			}
+		}
+
+		private void readInts(int[] values, int offset, int length) throws IOException {
+			for (int i = 0; i < length;) {
+				require(Integer.BYTES);
+				int n = Math.min(window.remaining() / Integer.BYTES, length - i);
+				window.asIntBuffer().get(values, offset + i, n);
+				window.position(window.position() + n * Integer.BYTES);
+				i += n;
+			}
+		}
+	}
+
+	/**
+	 * Assigns every distinct string an index, so repeated machine code, assembly
+	 * and values are only stored once.
+	 */
+	private static class StringPool {
+		private final Map<String, Integer> indices = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+
+		private int intern(String string) {
+			if (string == null)
+				return NULL_STRING;
+			return indices.computeIfAbsent(string, s -> {
+				strings.add(s);
+				return strings.size() - 1;
+			});
+		}
+
+		private void write(DataOutputStream out) throws IOException {
+			out.writeInt(strings.size());
+			for (String string : strings) {
+				byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+				out.writeInt(bytes.length);
+				out.write(bytes);
+			}
+		}
+	}
+}
@@ -1,30 +1,53 @@
 package util.yaml;
 
 import java.awt.Color;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.function.Supplier;
 
-import ghidra.app.decompiler.CTokenHighlightMatcher;
-import ghidra.app.decompiler.ClangToken;
 import ghidra.app.decompiler.DecompilerHighlighter;
 import ghidra.app.script.GhidraScript;
 import ghidra.program.model.address.AddressSet;
+import ghidra.program.model.address.AddressSpace;
+import ghidra.program.model.listing.Program;
 import ghidrion.GhidrionPlugin;
-import model.Instruction;
 import model.MorionTraceFile;
+import model.TraceStream;
 
 /**
  * A {@link GhidraScript} used for (de-)colorizing instructions in the Listing
  * window
  * and applying highlights in the decompiler based on a given
  * {@link MorionTraceFile} and color.
+ *
+ * Colorizing is incremental: only the addresses added to or removed from the
+ * trace since the last call are (de-)colorized, and a new color is applied to
+ * the colorized addresses in one pass with {@link #recolor(Color)}.
+ *
+ * The listing is colorized in the background by a {@link TraceColorizingTask},
+ * one at a time. Requests made while a task is running only update the
+ * requested state, which is applied once the task has finished. If a task is
+ * cancelled, the chunks it applied are kept and no new task is started until
+ * the next request.
  */
 public class TraceColorizerScript extends GhidraScript {
 
 	private final GhidrionPlugin plugin;
-	private final AddressSet colorizedAddresses = new AddressSet();
+	private AddressSet colorizedAddresses = new AddressSet();
+	private Program colorizedProgram; // null if nothing is colorized
+	private Color colorizedColor; // null if the colorized addresses may have different colors
+	private boolean colorizing = false; // whether a task is running
+	private boolean paused = false; // whether the last task has been cancelled without a new request since
+
+	private Program requestedProgram;
+	private Supplier<AddressSet> requestedAddresses; // null if not changed since the last task started
+	private Color requestedColor;
+	private int requests = 0; // incremented for every request
 
 	private DecompilerHighlighter decompilerHighlighter;
-	private boolean hasColorizedInstructions = false;
+	private TraceHighlightMatcher highlightMatcher;
+	private AddressSet highlightedAddresses;
+	private Color highlightedColor;
 
 	public TraceColorizerScript(GhidrionPlugin plugin) {
 		this.plugin = Objects.requireNonNull(plugin);
@@ -41,36 +64,35 @@ public class TraceColorizerScript extends GhidraScript {
 
 	/**
 	 * Colorizes the traced instructions of a given {@link MorionTraceFile} with the
-	 * specified color.
+	 * specified color. Only the addresses that differ from the previously
+	 * colorized ones are changed, unless the color or the program changed too.
 	 *
 	 * @param traceFile  the MorionTraceFile containing the traced instructions to
 	 *                   be colorized
 	 * @param traceColor the color to apply to the instructions
 	 */
 	public void colorize(MorionTraceFile traceFile, Color traceColor) {
-		if (hasColorizedInstructions) {
-			decolorize();
-		}
-
-		AddressSet addressesToColorize = new AddressSet();
-		for (Instruction i : traceFile.getInstructions()) {
-			addressesToColorize.add(i.getAddress());
-		}
-
-		int colorizeId = currentProgram.startTransaction("Colorizing instructions");
-		plugin.getColorizingService().setBackgroundColor(addressesToColorize, traceColor);
-		currentProgram.endTransaction(colorizeId, true);
-		colorizedAddresses.add(addressesToColorize);
+		TraceStream instructions = traceFile.getInstructions();
+		AddressSpace space = instructions.getAddressSpace();
+		long[] offsets = instructions.getInstructionOffsets();
 		if (!goTo(traceFile.getEntryAddress()) &&
-				!goTo(traceFile.getLeaveAddress())) {
+				!goTo(traceFile.getLeaveAddress()) &&
+				offsets.length > 0) {
 			// Go to max address if there is no entry or leave address
 			// (min address doesn't work because of hook target addresses)
-			goTo(addressesToColorize.getMaxAddress());
+			goTo(space.getAddress(Arrays.stream(offsets).reduce((a, b) -> Long.compareUnsigned(a, b) < 0 ? b : a)
+					.getAsLong()));
 		}
 
-		highlightDecompiler(addressesToColorize, traceColor);
+		request(currentProgram, () -> getAddresses(space, offsets), traceColor); // sorts offsets on the task thread
+	}
 
-		hasColorizedInstructions = true;
+	/**
+	 * Changes the color of the colorized instructions to @param traceColor in one
+	 * pass, without clearing them first.
+	 */
+	public void recolor(Color traceColor) {
+		request(requestedProgram, null, traceColor);
 	}
 
 	/**
@@ -78,41 +100,131 @@ public class TraceColorizerScript extends GhidraScript {
 	 * highlights.
 	 */
 	public void decolorize() {
-		int decolorizeId = currentProgram.startTransaction("Decolorizing instructions");
-		plugin.getColorizingService().clearBackgroundColor(colorizedAddresses);
-		currentProgram.endTransaction(decolorizeId, true);
-		colorizedAddresses.clear();
+		request(requestedProgram, AddressSet::new, requestedColor);
+	}
+
+	/**
+	 * @param program   to colorize
+	 * @param addresses builds the addresses to colorize, {@code null} to keep the
+	 *                  requested ones
+	 * @param color     to colorize with
+	 */
+	private void request(Program program, Supplier<AddressSet> addresses, Color color) {
+		requests++;
+		paused = false;
+		requestedProgram = program;
+		if (addresses != null)
+			requestedAddresses = addresses;
+		requestedColor = color;
+		update();
+	}
+
+	/**
+	 * Starts a task to apply the requested state unless one is running. The
+	 * colors of a previously colorized program are cleared first.
+	 */
+	private void update() {
+		if (colorizing) {
+			return;
+		}
+		if (colorizedProgram != null && colorizedProgram.isClosed()) {
+			colorizedAddresses = new AddressSet(); // the colors are gone with the program
+			colorizedProgram = null;
+		}
+		if (requestedProgram == null || requestedProgram.isClosed()) {
+			requestedAddresses = null; // nothing to colorize
+		}
+		if (paused) {
+			updateDecompilerHighlights();
+			return;
+		}
+		Program program;
+		Supplier<AddressSet> addresses;
+		Color color;
+		if (colorizedProgram != null && colorizedProgram != requestedProgram) {
+			program = colorizedProgram;
+			addresses = AddressSet::new;
+			color = colorizedColor != null ? colorizedColor : requestedColor; // only clears
+		} else if (requestedAddresses != null) {
+			program = requestedProgram;
+			addresses = requestedAddresses;
+			color = requestedColor;
+			requestedAddresses = null;
+		} else if (colorizedProgram != null && !requestedColor.equals(colorizedColor)) { // also if mixed
+			AddressSet colorized = colorizedAddresses;
+			program = colorizedProgram;
+			addresses = () -> colorized;
+			color = requestedColor;
+		} else {
+			updateDecompilerHighlights();
+			return;
+		}
+
+		colorizing = true;
+		int startedRequests = requests;
+		plugin.getTool().execute(new TraceColorizingTask(program, plugin.getColorizingService(),
+				colorizedAddresses, colorizedColor, addresses, color, (colorized, complete) -> {
+					colorizing = false;
+					colorizedAddresses = colorized;
+					colorizedProgram = colorized.isEmpty() ? null : program;
+					if (!complete && !color.equals(colorizedColor))
+						colorizedColor = null; // partially recolored, the next task colorizes all addresses
+					else
+						colorizedColor = color;
+					if (!complete && startedRequests == requests)
+						paused = true; // cancelled, keep the partial state until the next request
+					update();
+				}));
+	}
+
+	/**
+	 * @return the addresses of the distinct traced instructions at @param
+	 *         offsets, whose contiguous offsets are coalesced into ranges after
+	 *         sorting them
+	 */
+	private static AddressSet getAddresses(AddressSpace space, long[] offsets) {
+		AddressSet addresses = new AddressSet();
+		Arrays.sort(offsets);
+		for (int first = 0, last = 0; first < offsets.length; first = ++last) {
+			while (last + 1 < offsets.length && offsets[last] != -1 && offsets[last + 1] == offsets[last] + 1)
+				last++;
+			addresses.addRange(space.getAddress(offsets[first]), space.getAddress(offsets[last]));
+		}
+		return addresses;
+	}
 
+	private void clearDecompilerHighlights() {
 		if (decompilerHighlighter != null) {
 			int clearHighlightsId = currentProgram.startTransaction("Clearing decompiler highlights");
 			decompilerHighlighter.clearHighlights();
 			decompilerHighlighter.dispose();
 			currentProgram.endTransaction(clearHighlightsId, true);
+			decompilerHighlighter = null;
+			highlightMatcher = null;
 		}
-
-		hasColorizedInstructions = false;
 	}
 
-	private void highlightDecompiler(AddressSet addresses, Color color) {
-		DecompilerHighlighter highlighter = createHighlighter(addresses, color);
-		this.decompilerHighlighter = highlighter;
-		highlighter.applyHighlights();
-	}
-
-	private DecompilerHighlighter createHighlighter(AddressSet addresses, Color color) {
-		CTokenHighlightMatcher highlightMatcher = new CTokenHighlightMatcher() {
-			@Override
-			public Color getTokenHighlight(ClangToken token) {
-				if (token.getMinAddress() == null || token.getMaxAddress() == null) {
-					return null;
-				}
-				if (addresses.contains(token.getMinAddress()) && addresses.contains(token.getMaxAddress())) {
-					return color;
-				}
-				return null;
-			}
-		};
-		return plugin.getDecompilerHighlightService().createHighlighter(highlightMatcher);
+	/**
+	 * Highlights the colorized addresses in the decompiler, unless they are
+	 * highlighted already. If only the color changed, the function coverages
+	 * cached by the previous {@link TraceHighlightMatcher} are reused.
+	 */
+	private void updateDecompilerHighlights() {
+		if (colorizedAddresses == highlightedAddresses && Objects.equals(colorizedColor, highlightedColor)) {
+			return;
+		}
+		TraceHighlightMatcher previousMatcher = highlightMatcher;
+		clearDecompilerHighlights();
+		highlightedAddresses = colorizedAddresses;
+		highlightedColor = colorizedColor;
+		if (colorizedProgram == null) {
+			return;
+		}
+		Color color = colorizedColor != null ? colorizedColor : requestedColor; // the color being applied if mixed
+		highlightMatcher = previousMatcher != null && previousMatcher.getCoverage() == colorizedAddresses
+				? previousMatcher.withColor(color)
+				: new TraceHighlightMatcher(colorizedAddresses, color);
+		decompilerHighlighter = plugin.getDecompilerHighlightService().createHighlighter(highlightMatcher);
+		decompilerHighlighter.applyHighlights();
 	}
-
 }
@@ -0,0 +1,141 @@
+package util.yaml;
+
+import java.awt.Color;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import ghidra.app.plugin.core.colorizer.ColorizingService;
+import ghidra.program.model.address.AddressRange;
+import ghidra.program.model.address.AddressSet;
+import ghidra.program.model.address.AddressSetView;
+import ghidra.program.model.listing.Program;
+import ghidra.util.Swing;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.Task;
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * Changes the colorized addresses of a program in the background. The target
+ * addresses are built and diffed against the colorized ones on the task
+ * thread, only the difference is cleared and colorized.
+ *
+ * The ranges are changed in chunks of bounded size, so the listing stays
+ * usable in between, but within a single transaction, which is one undo step.
+ * If the task is cancelled or fails, the transaction is still committed: the
+ * chunks applied until then stay applied and are reported as colorized.
+ */
+public class TraceColorizingTask extends Task {
+	private static final int MAX_CHUNK_RANGES = 4096;
+
+	private final Program program;
+	private final ColorizingService colorizingService;
+	private final AddressSetView colorizedAddresses;
+	private final Color colorizedColor;
+	private final Supplier<AddressSet> targetAddresses;
+	private final Color color;
+	private final BiConsumer<AddressSet, Boolean> onFinished;
+
+	/**
+	 * @param program            to colorize, in one transaction
+	 * @param colorizingService  to change the background colors with
+	 * @param colorizedAddresses currently colorized, must not be modified
+	 *                           anymore
+	 * @param colorizedColor     of @param colorizedAddresses, {@code null} if
+	 *                           unknown
+	 * @param targetAddresses    builds the addresses to colorize on the task
+	 *                           thread
+	 * @param color              to colorize with
+	 * @param onFinished         receives the colorized addresses on the Swing
+	 *                           thread and {@code true} if they are the target
+	 *                           addresses, or {@code false} if the task has been
+	 *                           cancelled or failed. Then the colorized
+	 *                           addresses are the ones of the applied chunks,
+	 *                           which may still have @param colorizedColor
+	 */
+	public TraceColorizingTask(Program program, ColorizingService colorizingService,
+			AddressSetView colorizedAddresses, Color colorizedColor, Supplier<AddressSet> targetAddresses,
+			Color color, BiConsumer<AddressSet, Boolean> onFinished) {
+		super("Colorizing instructions", true, true, false);
+		this.program = Objects.requireNonNull(program);
+		this.colorizingService = Objects.requireNonNull(colorizingService);
+		this.colorizedAddresses = Objects.requireNonNull(colorizedAddresses);
+		this.colorizedColor = colorizedColor;
+		this.targetAddresses = Objects.requireNonNull(targetAddresses);
+		this.color = Objects.requireNonNull(color);
+		this.onFinished = Objects.requireNonNull(onFinished);
+	}
+
+	@Override
+	public void run(TaskMonitor monitor) throws CancelledException {
+		AddressSet colorized = new AddressSet(colorizedAddresses); // updated with every applied chunk
+		boolean finished = false;
+		try {
+			monitor.setMessage("Collecting traced addresses");
+			AddressSet addresses = targetAddresses.get();
+			AddressSet removedAddresses = colorizedAddresses.subtract(addresses);
+			AddressSet addedAddresses = color.equals(colorizedColor)
+					? addresses.subtract(colorizedAddresses)
+					: addresses; // existing ranges are overwritten with the new color
+			monitor.checkCanceled();
+			int transactionId = program.startTransaction(getTaskTitle());
+			try {
+				apply(removedAddresses, addedAddresses, colorized, monitor);
+			} finally {
+				program.endTransaction(transactionId, true); // partial progress is tracked in colorized
+			}
+			finished = true;
+		} finally {
+			boolean complete = finished;
+			Swing.runLater(() -> onFinished.accept(colorized, complete));
+		}
+	}
+
+	/**
+	 * @param colorized receives the changes of every applied chunk. Chunks to
+	 *                  colorize are added before they are applied, so a chunk
+	 *                  that fails halfway is cleared again by a later task
+	 */
+	private void apply(AddressSetView addressesToClear, AddressSetView addressesToColorize, AddressSet colorized,
+			TaskMonitor monitor) throws CancelledException {
+		if (addressesToClear.isEmpty() && addressesToColorize.isEmpty())
+			return;
+		monitor.initialize(addressesToClear.getNumAddressRanges() + addressesToColorize.getNumAddressRanges());
+		monitor.setMessage("Decolorizing instructions");
+		applyInChunks(addressesToClear, chunk -> {
+			colorizingService.clearBackgroundColor(chunk);
+			colorized.delete(chunk);
+		}, monitor);
+		monitor.setMessage("Colorizing instructions");
+		applyInChunks(addressesToColorize, chunk -> {
+			colorized.add(chunk);
+			colorizingService.setBackgroundColor(chunk, color);
+		}, monitor);
+	}
+
+	/**
+	 * Calls @param action with chunks of at most {@link #MAX_CHUNK_RANGES}
+	 * ranges of @param addresses.
+	 */
+	private static void applyInChunks(AddressSetView addresses, Consumer<AddressSet> action, TaskMonitor monitor)
+			throws CancelledException {
+		AddressSet chunk = new AddressSet();
+		int chunkRanges = 0;
+		for (AddressRange range : addresses) {
+			chunk.add(range);
+			if (++chunkRanges == MAX_CHUNK_RANGES) {
+				monitor.checkCanceled();
+				action.accept(chunk);
+				monitor.incrementProgress(chunkRanges);
+				chunk = new AddressSet();
+				chunkRanges = 0;
+			}
+		}
+		monitor.checkCanceled();
+		if (chunkRanges > 0) {
+			action.accept(chunk);
+			monitor.incrementProgress(chunkRanges);
+		}
+	}
+}
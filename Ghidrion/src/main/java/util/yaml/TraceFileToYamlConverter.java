@@ -2,18 +2,21 @@ package util.yaml;
 
 import static util.yaml.ConversionConstants.*;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
-
-import org.yaml.snakeyaml.Yaml;
 
 import model.Hook;
 import model.MemoryEntry;
+import model.MemoryStore;
 import model.MorionInitTraceFile;
 
 public class TraceFileToYamlConverter {
@@ -28,73 +31,165 @@ public class TraceFileToYamlConverter {
 	 * @return traceFile as yaml code
 	 */
 	public static String toYaml(MorionInitTraceFile traceFile) {
-		Map<String, Object> traceFileDump = new HashMap<>();
-		traceFileDump.put(HOOKS, getHooksMap(traceFile));
-		traceFileDump.put(STATES, getStatesMap(traceFile));
-		return new Yaml().dump(traceFileDump);
+		StringWriter writer = new StringWriter();
+		try {
+			write(traceFile, writer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // not thrown by StringWriter
+		}
+		return writer.toString();
 	}
 
-	private static Map<String, Map<String, Map<String, List<String>>>> getStatesMap(MorionInitTraceFile traceFile) {
-		return Map.of(ENTRY_STATE,
-				Map.of(
-						STATE_REGISTERS, memoryEntriesToMap(traceFile.getEntryRegisters()),
-						STATE_MEMORY, memoryEntriesToMap(traceFile.getEntryMemory())));
+	/**
+	 * Write the information in the @param traceFile as yaml code to @param out.
+	 * 
+	 * The yaml events are emitted while walking the trace file in sorted order,
+	 * so no intermediate maps or strings of the whole document are built. The
+	 * output is the same as the one of {@link #toYaml(MorionInitTraceFile)}.
+	 * 
+	 * @param traceFile to write to disk
+	 * @param out       to write the UTF-8 encoded yaml code to, it is flushed but
+	 *                  not closed
+	 * @throws IOException if writing to @param out fails
+	 */
+	public static void toYaml(MorionInitTraceFile traceFile, OutputStream out) throws IOException {
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		write(traceFile, writer);
+		writer.flush();
 	}
 
-	private static Map<String, List<String>> memoryEntriesToMap(Collection<MemoryEntry> ms) {
-		return new TreeMap<>(ms
-				.stream()
-				.map(m -> new Pair<>(m.getName(),
-						m.isSymbolic() ? List.of(m.getValue(), SYMBOLIC) : List.of(m.getValue())))
-				.collect(Collectors.toMap(Pair::getA, Pair::getB)));
+	private static void write(MorionInitTraceFile traceFile, Writer writer) throws IOException {
+		YamlEventWriter yaml = new YamlEventWriter(writer);
+		yaml.startDocument();
+		yaml.startMapping(false);
+		yaml.writeScalar(HOOKS);
+		writeHooks(yaml, traceFile.getHooks());
+		yaml.writeScalar(STATES);
+		writeStates(yaml, traceFile);
+		yaml.endMapping();
+		yaml.endDocument();
 	}
 
-	private synchronized static String generateTargetAddress() {
-		long newTargetAddress = ++targetAddressCounter * TARGET_ADDRESS_STEP;
-		return prependHex(Long.toHexString(newTargetAddress));
+	private static void writeStates(YamlEventWriter yaml, MorionInitTraceFile traceFile) throws IOException {
+		yaml.startMapping(false);
+		yaml.writeScalar(ENTRY_STATE);
+		yaml.startMapping(false);
+		yaml.writeScalar(STATE_MEMORY);
+		writeMemory(yaml, traceFile.getEntryMemory().getStore());
+		yaml.writeScalar(STATE_REGISTERS);
+		writeMemoryEntries(yaml, traceFile.getEntryRegisters());
+		yaml.endMapping();
+		yaml.endMapping();
 	}
 
-	private static String prependHex(Object s) {
-		return "0x" + s.toString();
+	private static void writeMemoryEntries(YamlEventWriter yaml, Collection<MemoryEntry> ms) throws IOException {
+		List<MemoryEntry> sorted = new ArrayList<>(ms);
+		sorted.sort(null); // sort by name
+		yaml.startMapping(sorted.isEmpty());
+		for (MemoryEntry m : sorted)
+			writeMemoryValue(yaml, m.getName(), m.getValue(), m.isSymbolic());
+		yaml.endMapping();
 	}
 
-	private static Map<String, Map<String, List<Map<String, String>>>> getHooksMap(MorionInitTraceFile traceFile) {
-		return new TreeSet<>(traceFile.getHooks()) // convert to TreeSet to sort hooks
-				.stream()
-				.collect(
-						Collectors.groupingBy(
-								Hook::getLibraryName,
-								TreeMap::new, // sort library names
-								Collectors.groupingBy(
-										Hook::getFunctionName,
-										TreeMap::new, // sort function names
-										Collectors.mapping(TraceFileToYamlConverter::hookToMap, Collectors.toList()))));
+	/**
+	 * The bytes of a {@link MemoryStore} are already ordered by address. As long
+	 * as all their names have the same number of digits, the address order is
+	 * the name order, so they are written run by run without sorting them again
+	 * or creating a {@link MemoryEntry} per byte. Names of different lengths
+	 * don't sort like their addresses (e.g. {@code 0x100000000} sorts before
+	 * {@code 0x80000000}), so such memory is sorted by name like the registers.
+	 */
+	private static void writeMemory(YamlEventWriter yaml, MemoryStore memory) throws IOException {
+		if (hasMixedAddressLengths(memory)) {
+			writeMemoryEntries(yaml, memory);
+			return;
+		}
+		yaml.startMapping(memory.isEmpty());
+		for (MemoryStore.Run run : memory.getRuns())
+			for (long address = run.getStart(); address != run.getEnd() + 1; address++)
+				writeMemoryValue(yaml, MemoryStore.formatAddress(address),
+						MemoryStore.formatValue(run.getValue(address)), run.isSymbolic());
+		yaml.endMapping();
 	}
 
-	private static Map<String, String> hookToMap(Hook hook) {
-		Map<String, String> hookMap = new HashMap<>();
-		hookMap.put(HOOK_ENTRY, prependHex(hook.getEntryAddress()));
-		hookMap.put(HOOK_LEAVE, prependHex(hook.getLeaveAddress()));
-		hookMap.put(HOOK_TARGET, generateTargetAddress());
-		hookMap.put(HOOK_MODE, hook.getMode().getValue());
-		return hookMap;
+	private static boolean hasMixedAddressLengths(MemoryStore memory) {
+		int length = -1;
+		for (MemoryStore.Run run : memory.getRuns()) {
+			int startLength = MemoryStore.formatAddress(run.getStart()).length();
+			if (length == -1)
+				length = startLength;
+			if (startLength != length || MemoryStore.formatAddress(run.getEnd()).length() != length)
+				return true;
+		}
+		return false;
 	}
 
-	public static class Pair<A, B> {
-		private final A a;
-		private final B b;
+	private static void writeMemoryValue(YamlEventWriter yaml, String name, String value, boolean symbolic)
+			throws IOException {
+		yaml.writeScalar(name);
+		yaml.startSequence(true);
+		yaml.writeScalar(value);
+		if (symbolic)
+			yaml.writeScalar(SYMBOLIC);
+		yaml.endSequence();
+	}
 
-		public Pair(A a, B b) {
-			this.a = a;
-			this.b = b;
-		}
+	private synchronized static String generateTargetAddress() {
+		long newTargetAddress = ++targetAddressCounter * TARGET_ADDRESS_STEP;
+		return prependHex(Long.toHexString(newTargetAddress));
+	}
 
-		public A getA() {
-			return a;
-		}
+	private static String prependHex(Object s) {
+		return "0x" + s.toString();
+	}
 
-		public B getB() {
-			return b;
+	/**
+	 * Hooks are sorted by library name, function name and entry address, which
+	 * groups them by library and function at the same time.
+	 */
+	private static void writeHooks(YamlEventWriter yaml, Collection<Hook> hooks) throws IOException {
+		List<Hook> sorted = new ArrayList<>(hooks);
+		sorted.sort(null);
+		yaml.startMapping(sorted.isEmpty());
+		String libraryName = null;
+		String functionName = null;
+		for (Hook hook : sorted) {
+			if (!hook.getLibraryName().equals(libraryName)) {
+				if (libraryName != null) {
+					yaml.endSequence();
+					yaml.endMapping();
+				}
+				libraryName = hook.getLibraryName();
+				functionName = null;
+				yaml.writeScalar(libraryName);
+				yaml.startMapping(false);
+			}
+			if (!hook.getFunctionName().equals(functionName)) {
+				if (functionName != null)
+					yaml.endSequence();
+				functionName = hook.getFunctionName();
+				yaml.writeScalar(functionName);
+				yaml.startSequence(false);
+			}
+			writeHook(yaml, hook);
+		}
+		if (libraryName != null) {
+			yaml.endSequence();
+			yaml.endMapping();
 		}
+		yaml.endMapping();
+	}
+
+	/**
+	 * The keys are written in the iteration order of the {@link java.util.HashMap}
+	 * that was dumped by earlier versions, to keep the output unchanged.
+	 */
+	private static void writeHook(YamlEventWriter yaml, Hook hook) throws IOException {
+		yaml.startMapping(true);
+		yaml.writeEntry(HOOK_MODE, hook.getMode().getValue());
+		yaml.writeEntry(HOOK_ENTRY, prependHex(hook.getEntryAddress()));
+		yaml.writeEntry(HOOK_LEAVE, prependHex(hook.getLeaveAddress()));
+		yaml.writeEntry(HOOK_TARGET, generateTargetAddress());
+		yaml.endMapping();
 	}
 }
@@ -0,0 +1,127 @@
+package util.yaml;
+
+import java.awt.Color;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import ghidra.app.decompiler.CTokenHighlightMatcher;
+import ghidra.app.decompiler.ClangFunction;
+import ghidra.app.decompiler.ClangNode;
+import ghidra.app.decompiler.ClangToken;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.address.AddressRange;
+import ghidra.program.model.address.AddressSet;
+import ghidra.program.model.address.AddressSetView;
+import ghidra.program.model.listing.Function;
+import ghidra.program.model.pcode.HighFunction;
+
+/**
+ * {@link CTokenHighlightMatcher} highlighting the tokens of traced
+ * instructions in the decompiler.
+ *
+ * When a function is decompiled, the trace coverage is intersected with its
+ * body once and cached by its entry point, so tokens are only looked up in the
+ * few traced addresses of the function, and functions the trace doesn't touch
+ * are skipped without any lookup. The cache is reused when the same function is
+ * decompiled again, unless its body changed.
+ */
+public class TraceHighlightMatcher implements CTokenHighlightMatcher {
+	private final AddressSetView coverage;
+	private final Color color;
+	private final Map<Address, FunctionCoverage> functionCoverages;
+	private AddressSetView currentCoverage; // of the function being highlighted, null if not traced
+
+	/**
+	 * @param coverage traced addresses, must not be modified anymore
+	 * @param color    to highlight the traced tokens with
+	 */
+	public TraceHighlightMatcher(AddressSetView coverage, Color color) {
+		this(coverage, color, new HashMap<>());
+	}
+
+	private TraceHighlightMatcher(AddressSetView coverage, Color color,
+			Map<Address, FunctionCoverage> functionCoverages) {
+		this.coverage = Objects.requireNonNull(coverage);
+		this.color = Objects.requireNonNull(color);
+		this.functionCoverages = functionCoverages;
+	}
+
+	/**
+	 * @param newColor to highlight the traced tokens with
+	 * @return a matcher for the same coverage, sharing the cached function
+	 *         coverages
+	 */
+	public TraceHighlightMatcher withColor(Color newColor) {
+		return new TraceHighlightMatcher(coverage, newColor, functionCoverages);
+	}
+
+	public AddressSetView getCoverage() {
+		return coverage;
+	}
+
+	@Override
+	public void start(ClangNode root) {
+		Function function = getFunction(root);
+		if (function == null) {
+			currentCoverage = coverage; // unknown function, look up tokens in the whole coverage
+			return;
+		}
+		AddressSetView body = function.getBody();
+		FunctionCoverage cached = functionCoverages.get(function.getEntryPoint());
+		if (cached == null || !cached.body.equals(body)) {
+			cached = new FunctionCoverage(body, intersect(body));
+			functionCoverages.put(function.getEntryPoint(), cached);
+		}
+		currentCoverage = cached.coverage.isEmpty() ? null : cached.coverage;
+	}
+
+	@Override
+	public void end() {
+		currentCoverage = null;
+	}
+
+	@Override
+	public Color getTokenHighlight(ClangToken token) {
+		if (currentCoverage == null) {
+			return null;
+		}
+		if (token.getMinAddress() == null || token.getMaxAddress() == null) {
+			return null;
+		}
+		if (currentCoverage.contains(token.getMinAddress()) && currentCoverage.contains(token.getMaxAddress())) {
+			return color;
+		}
+		return null;
+	}
+
+	private static Function getFunction(ClangNode root) {
+		ClangFunction clangFunction = root == null ? null : root.getClangFunction();
+		HighFunction highFunction = clangFunction == null ? null : clangFunction.getHighFunction();
+		return highFunction == null ? null : highFunction.getFunction();
+	}
+
+	/**
+	 * @return the traced addresses in @param body, looked up range by range
+	 */
+	private AddressSet intersect(AddressSetView body) {
+		AddressSet res = new AddressSet();
+		for (AddressRange range : body)
+			if (coverage.intersects(range.getMinAddress(), range.getMaxAddress()))
+				res.add(coverage.intersectRange(range.getMinAddress(), range.getMaxAddress()));
+		return res;
+	}
+
+	/**
+	 * Traced addresses of a function, valid as long as its body doesn't change.
+	 */
+	private static class FunctionCoverage {
+		private final AddressSetView body;
+		private final AddressSetView coverage;
+
+		private FunctionCoverage(AddressSetView body, AddressSetView coverage) {
+			this.body = body;
+			this.coverage = coverage;
+		}
+	}
+}
@@ -0,0 +1,96 @@
+package util.yaml;
+
+import java.io.InputStream;
+
+import org.yaml.snakeyaml.LoaderOptions;
+
+/**
+ * Limits that apply while a Morion YAML file is parsed.
+ * 
+ * By default, SnakeYAML rejects documents with more than 3 MB of code points,
+ * which most real traces exceed. In large trace mode, this limit is replaced by
+ * a configurable maximum file size that is counted in bytes, so it also works
+ * for files beyond the range of SnakeYAML's {@code int} based code point
+ * counter.
+ * 
+ * Additionally, the options control whether parsed traces are cached in a
+ * {@link TraceCacheFile} next to the YAML file.
+ */
+public class TraceLoadingOptions {
+	public static final boolean DEFAULT_LARGE_TRACE_MODE = true;
+	public static final int DEFAULT_MAX_FILE_SIZE_MB = 16 * 1024;
+	public static final int DEFAULT_MAX_NESTING_DEPTH = 50;
+	public static final int DEFAULT_MAX_ALIASES = 50;
+	public static final boolean DEFAULT_USE_CACHE = true;
+	public static final TraceLoadingOptions DEFAULT = new TraceLoadingOptions(DEFAULT_LARGE_TRACE_MODE,
+			DEFAULT_MAX_FILE_SIZE_MB, DEFAULT_MAX_NESTING_DEPTH, DEFAULT_MAX_ALIASES, DEFAULT_USE_CACHE);
+
+	private static final long BYTES_PER_MB = 1024 * 1024;
+
+	private final boolean largeTraceMode;
+	private final int maxFileSizeMB;
+	private final int maxNestingDepth;
+	private final int maxAliases;
+	private final boolean useCache;
+
+	/**
+	 * @param largeTraceMode  {@code true} to replace SnakeYAML's code point limit
+	 *                        by @param maxFileSizeMB
+	 * @param maxFileSizeMB   maximum size of a trace file in large trace mode
+	 * @param maxNestingDepth maximum depth of nested collections
+	 * @param maxAliases      maximum number of aliases referring to collections
+	 * @param useCache        {@code true} to read and write a
+	 *                        {@link TraceCacheFile} next to the YAML file
+	 */
+	public TraceLoadingOptions(boolean largeTraceMode, int maxFileSizeMB, int maxNestingDepth, int maxAliases,
+			boolean useCache) {
+		this.largeTraceMode = largeTraceMode;
+		this.maxFileSizeMB = maxFileSizeMB;
+		this.maxNestingDepth = maxNestingDepth;
+		this.maxAliases = maxAliases;
+		this.useCache = useCache;
+	}
+
+	public boolean isLargeTraceMode() {
+		return largeTraceMode;
+	}
+
+	public int getMaxFileSizeMB() {
+		return maxFileSizeMB;
+	}
+
+	public int getMaxNestingDepth() {
+		return maxNestingDepth;
+	}
+
+	public int getMaxAliases() {
+		return maxAliases;
+	}
+
+	public boolean isUseCache() {
+		return useCache;
+	}
+
+	/**
+	 * @return {@link LoaderOptions} to pass to SnakeYAML
+	 */
+	public LoaderOptions toLoaderOptions() {
+		LoaderOptions loaderOptions = new LoaderOptions();
+		if (largeTraceMode)
+			loaderOptions.setCodePointLimit(Integer.MAX_VALUE); // size is checked by limit(InputStream) instead
+		loaderOptions.setNestingDepthLimit(maxNestingDepth);
+		loaderOptions.setMaxAliasesForCollections(maxAliases);
+		return loaderOptions;
+	}
+
+	/**
+	 * @param yamlStream to read the trace file from
+	 * @return @param yamlStream, limited to the maximum file size in large trace
+	 *         mode
+	 */
+	public InputStream limit(InputStream yamlStream) {
+		if (!largeTraceMode)
+			return yamlStream;
+		return new SizeLimitedInputStream(yamlStream, maxFileSizeMB * BYTES_PER_MB);
+	}
+}
@@ -0,0 +1,254 @@
+package util.yaml;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.Mark;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+
+/**
+ * Pull-style reader on top of the low-level event stream produced by
+ * {@link Yaml#parse(Reader)}.
+ *
+ * In contrast to {@link Yaml#load(Reader)} no tree of the whole document is
+ * built. Large collections can be walked element by element with
+ * {@link #startMapping()}, {@link #startSequence()},
+ * {@link #hasNextElement()} and {@link #endCollection()}, while small values
+ * can still be materialized as {@link String}, {@link List} or {@link Map}
+ * using {@link #readValue()}.
+ * 
+ * As the SnakeYAML composer is bypassed, the nesting depth and alias limits of
+ * the {@link TraceLoadingOptions} are enforced here.
+ */
+public class YamlEventReader {
+	private static final String NULL_TAG = "tag:yaml.org,2002:null";
+
+	private final Iterator<Event> events;
+	private final Map<String, Object> anchors = new HashMap<>();
+	private final TraceLoadingOptions options;
+	private Event peeked;
+	private int depth = 0;
+	private int collectionAliases = 0;
+
+	/**
+	 * @param reader  to read the YAML document from
+	 * @param options limits to enforce while reading
+	 */
+	public YamlEventReader(Reader reader, TraceLoadingOptions options) {
+		this.options = Objects.requireNonNull(options);
+		this.events = new Yaml(options.toLoaderOptions()).parse(reader).iterator();
+	}
+
+	/**
+	 * Consumes the start of the stream and the start of the first document.
+	 *
+	 * @return {@code false} if the stream does not contain any document
+	 * @throws YamlConverterException if the stream is malformed
+	 */
+	public boolean startDocument() throws YamlConverterException {
+		expect(Event.ID.StreamStart);
+		if (nextIs(Event.ID.StreamEnd))
+			return false;
+		expect(Event.ID.DocumentStart);
+		return true;
+	}
+
+	/**
+	 * Consumes the start of a mapping.
+	 *
+	 * @return {@code false} if the value is null instead of a mapping
+	 * @throws YamlConverterException if the value is neither a mapping nor null
+	 */
+	public boolean startMapping() throws YamlConverterException {
+		return startCollection(Event.ID.MappingStart, "mapping");
+	}
+
+	/**
+	 * Consumes the start of a sequence.
+	 *
+	 * @return {@code false} if the value is null instead of a sequence
+	 * @throws YamlConverterException if the value is neither a sequence nor null
+	 */
+	public boolean startSequence() throws YamlConverterException {
+		return startCollection(Event.ID.SequenceStart, "sequence");
+	}
+
+	/**
+	 * @return {@code true} if the current mapping or sequence has more elements
+	 */
+	public boolean hasNextElement() {
+		return !nextIs(Event.ID.MappingEnd) && !nextIs(Event.ID.SequenceEnd);
+	}
+
+	/**
+	 * Consumes the end of the current mapping or sequence.
+	 *
+	 * @throws YamlConverterException if the current collection has more elements
+	 */
+	public void endCollection() throws YamlConverterException {
+		if (hasNextElement())
+			throw unexpected(peek(), "end of collection");
+		next();
+	}
+
+	/**
+	 * @return the next scalar or {@code null} if the scalar is a YAML null value
+	 * @throws YamlConverterException if the next value is not a scalar
+	 */
+	public String readScalar() throws YamlConverterException {
+		Event event = peek();
+		if (!event.is(Event.ID.Scalar) && !event.is(Event.ID.Alias))
+			throw unexpected(event, "scalar");
+		Object value = readValue();
+		if (value != null && !(value instanceof String))
+			throw unexpected(event, "scalar");
+		return (String) value;
+	}
+
+	/**
+	 * Materializes the next value. Only use this for values that are known to be
+	 * small, e.g. a single row of a section.
+	 *
+	 * @return the next value as {@link String}, {@link List} or {@link Map}, or
+	 *         {@code null} if the value is a YAML null value
+	 * @throws YamlConverterException if the value is malformed
+	 */
+	public Object readValue() throws YamlConverterException {
+		Event event = next();
+		if (event.is(Event.ID.Alias))
+			return resolveAlias((AliasEvent) event);
+
+		Object value;
+		if (event.is(Event.ID.Scalar)) {
+			ScalarEvent scalar = (ScalarEvent) event;
+			value = isNull(scalar) ? null : scalar.getValue();
+		} else if (event.is(Event.ID.SequenceStart)) {
+			List<Object> list = new ArrayList<>();
+			while (hasNextElement())
+				list.add(readValue());
+			endCollection();
+			value = list;
+		} else if (event.is(Event.ID.MappingStart)) {
+			Map<String, Object> map = new LinkedHashMap<>();
+			while (hasNextElement()) {
+				Object key = readValue();
+				map.put(key == null ? null : key.toString(), readValue());
+			}
+			endCollection();
+			value = map;
+		} else
+			throw unexpected(event, "value");
+
+		String anchor = ((NodeEvent) event).getAnchor();
+		if (anchor != null)
+			anchors.put(anchor, value);
+		return value;
+	}
+
+	/**
+	 * Skips the next value including all of its children.
+	 */
+	public void skipValue() {
+		int level = 0;
+		do {
+			Event event = next();
+			if (event.is(Event.ID.MappingStart) || event.is(Event.ID.SequenceStart))
+				level++;
+			else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd))
+				level--;
+		} while (level > 0);
+	}
+
+	private boolean startCollection(Event.ID id, String name) throws YamlConverterException {
+		Event event = peek();
+		if (event.is(id)) {
+			next();
+			return true;
+		}
+		if (event.is(Event.ID.Scalar) && isNull((ScalarEvent) event)) {
+			next();
+			return false;
+		}
+		throw unexpected(event, name);
+	}
+
+	private Object resolveAlias(AliasEvent alias) throws YamlConverterException {
+		if (!anchors.containsKey(alias.getAnchor())) {
+			String message = "Alias '" + alias.getAnchor() + "' does not refer to a supported anchor"
+					+ atLine(alias);
+			throw new YamlConverterException("Unsupported alias", message);
+		}
+		Object value = anchors.get(alias.getAnchor());
+		if ((value instanceof List || value instanceof Map) && ++collectionAliases > options.getMaxAliases())
+			throw new YAMLException("Number of aliases for non-scalar nodes exceeds the limit of "
+					+ options.getMaxAliases() + atLine(alias));
+		return value;
+	}
+
+	private static boolean isNull(ScalarEvent scalar) {
+		if (NULL_TAG.equals(scalar.getTag()))
+			return true;
+		if (!scalar.isPlain() || !scalar.getImplicit().canOmitTagInPlainScalar())
+			return false;
+		switch (scalar.getValue()) {
+			case "":
+			case "~":
+			case "null":
+			case "Null":
+			case "NULL":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private void expect(Event.ID id) throws YamlConverterException {
+		Event event = next();
+		if (!event.is(id))
+			throw unexpected(event, id.toString());
+	}
+
+	private boolean nextIs(Event.ID id) {
+		return peek().is(id);
+	}
+
+	private Event peek() {
+		if (peeked == null)
+			peeked = events.next();
+		return peeked;
+	}
+
+	private Event next() {
+		Event event = peek();
+		peeked = null;
+		if (event.is(Event.ID.MappingStart) || event.is(Event.ID.SequenceStart)) {
+			if (++depth > options.getMaxNestingDepth())
+				throw new YAMLException("Nesting depth exceeds the limit of " + options.getMaxNestingDepth()
+						+ atLine(event));
+		} else if (event.is(Event.ID.MappingEnd) || event.is(Event.ID.SequenceEnd)) {
+			depth--;
+		}
+		return event;
+	}
+
+	private static YamlConverterException unexpected(Event event, String expected) {
+		String message = "Expected " + expected + " but found " + event.getEventId() + atLine(event);
+		return new YamlConverterException("Unexpected element", message);
+	}
+
+	private static String atLine(Event event) {
+		Mark mark = event.getStartMark();
+		return mark == null ? "" : " (Line: " + (mark.getLine() + 1) + ")";
+	}
+}
@@ -0,0 +1,129 @@
+package util.yaml;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.DumperOptions.FlowStyle;
+import org.yaml.snakeyaml.DumperOptions.ScalarStyle;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.emitter.Emitter;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.ImplicitTuple;
+import org.yaml.snakeyaml.events.MappingEndEvent;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceEndEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+/**
+ * Push-style writer emitting low-level YAML events directly to a
+ * {@link Writer}, the counterpart of {@link YamlEventReader}.
+ *
+ * In contrast to {@link Yaml#dump(Object)} no tree of the whole document has
+ * to be built first. The events are the same ones SnakeYAML's serializer
+ * produces for maps, lists and strings with the default
+ * {@link DumperOptions}, so the output is identical to dumping the
+ * corresponding tree, as long as collections are started in flow style
+ * exactly if they only contain scalars (or nothing at all).
+ */
+public class YamlEventWriter {
+	private final DumperOptions options = new DumperOptions();
+	private final Resolver resolver = new Resolver();
+	private final Emitter emitter;
+
+	/**
+	 * @param writer to write the YAML document to
+	 */
+	public YamlEventWriter(Writer writer) {
+		this.emitter = new Emitter(writer, options);
+	}
+
+	/**
+	 * Emits the start of the stream and the start of a single document.
+	 *
+	 * @throws IOException if writing fails
+	 */
+	public void startDocument() throws IOException {
+		emitter.emit(new StreamStartEvent(null, null));
+		emitter.emit(new DocumentStartEvent(null, null, options.isExplicitStart(), options.getVersion(),
+				options.getTags()));
+	}
+
+	/**
+	 * Emits the end of the document and the end of the stream, which also
+	 * flushes the underlying {@link Writer}.
+	 *
+	 * @throws IOException if writing fails
+	 */
+	public void endDocument() throws IOException {
+		emitter.emit(new DocumentEndEvent(null, null, options.isExplicitEnd()));
+		emitter.emit(new StreamEndEvent(null, null));
+	}
+
+	/**
+	 * @param flow whether the mapping is written in flow style
+	 * @throws IOException if writing fails
+	 */
+	public void startMapping(boolean flow) throws IOException {
+		emitter.emit(new MappingStartEvent(null, Tag.MAP.getValue(), true, null, null, flowStyle(flow)));
+	}
+
+	/**
+	 * @throws IOException if writing fails
+	 */
+	public void endMapping() throws IOException {
+		emitter.emit(new MappingEndEvent(null, null));
+	}
+
+	/**
+	 * @param flow whether the sequence is written in flow style
+	 * @throws IOException if writing fails
+	 */
+	public void startSequence(boolean flow) throws IOException {
+		emitter.emit(new SequenceStartEvent(null, Tag.SEQ.getValue(), true, null, null, flowStyle(flow)));
+	}
+
+	/**
+	 * @throws IOException if writing fails
+	 */
+	public void endSequence() throws IOException {
+		emitter.emit(new SequenceEndEvent(null, null));
+	}
+
+	/**
+	 * Emits @param value as string scalar. Like the serializer, the emitter quotes
+	 * it if it would otherwise be read as another type, e.g. {@code '0x41'}.
+	 *
+	 * @param value of the scalar
+	 * @throws IOException if writing fails
+	 */
+	public void writeScalar(String value) throws IOException {
+		ImplicitTuple implicit = new ImplicitTuple(
+				Tag.STR.equals(resolver.resolve(NodeId.scalar, value, true)),
+				Tag.STR.equals(resolver.resolve(NodeId.scalar, value, false)));
+		emitter.emit(new ScalarEvent(null, Tag.STR.getValue(), implicit, value, null, null, ScalarStyle.PLAIN));
+	}
+
+	/**
+	 * Emits a mapping key followed by its scalar value.
+	 *
+	 * @param key   of the mapping entry
+	 * @param value of the mapping entry
+	 * @throws IOException if writing fails
+	 */
+	public void writeEntry(String key, String value) throws IOException {
+		writeScalar(key);
+		writeScalar(value);
+	}
+
+	private static FlowStyle flowStyle(boolean flow) {
+		return flow ? FlowStyle.FLOW : FlowStyle.BLOCK;
+	}
+}
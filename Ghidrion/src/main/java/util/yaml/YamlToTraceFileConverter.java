@@ -2,32 +2,41 @@ package util.yaml;
 
 import static util.yaml.ConversionConstants.*;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.regex.Pattern;
 
-import org.yaml.snakeyaml.Yaml;
-import org.yaml.snakeyaml.parser.ParserException;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.reader.UnicodeReader;
 
 import ghidra.program.model.address.Address;
 import ghidra.program.model.address.AddressFactory;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
 import model.Hook;
 import model.Hook.Mode;
 import model.Instruction;
 import model.MemoryEntry;
+import model.MemoryStore;
 import model.MorionInitTraceFile;
 import model.MorionTraceFile;
+import model.TraceStream;
+import util.observable.Observable.Batch;
 
 public class YamlToTraceFileConverter {
 
-	private static final String HEX_REGEX = "[0-9a-fA-F]+";
+	private static final Pattern HEX_PATTERN = Pattern.compile("0x[0-9a-fA-F]+");
 	private static final int ONE_BYTE_LENGTH = 4; // maximum length of 0x followed by 2 hexadecimal digits
 	private static final int FOUR_BYTE_LENGTH = 10; // maximum length of 0x followed by 8 hexadecimal digits
+	private static final int MONITOR_INTERVAL = 0x10000; // number of converted elements between monitor updates
 
 	/**
 	 * Convert the information in the @param yamlStream to a
@@ -42,15 +51,15 @@ public class YamlToTraceFileConverter {
 	 * @param traceFile      {@link MorionInitTraceFile} to write to
 	 * @param yamlStream     to write to @param traceFile
 	 * @param addressFactory to create {@link Address} objects
+	 * @param options        limits to apply while parsing
+	 * @param monitor        to report progress to and check for cancellation
 	 * @throws YamlConverterException if any exception occurs while converting
+	 * @throws CancelledException     if @param monitor has been cancelled
 	 */
 	public static void toInitTraceFile(MorionInitTraceFile traceFile, InputStream yamlStream,
-			AddressFactory addressFactory) throws YamlConverterException {
-		Map<String, Object> traceFileToConvert = loadTraceFile(traceFile, yamlStream);
-
-		addHooks(traceFile, traceFileToConvert, addressFactory);
-		addEntryMemory(traceFile, traceFileToConvert);
-		addEntryRegisters(traceFile, traceFileToConvert);
+			AddressFactory addressFactory, TraceLoadingOptions options, TaskMonitor monitor)
+			throws YamlConverterException, CancelledException {
+		loadTraceFile(traceFile, null, yamlStream, addressFactory, options, monitor);
 	}
 
 	/**
@@ -66,49 +75,152 @@ public class YamlToTraceFileConverter {
 	 * <li>Leave state registers</li>
 	 * </ul>
 	 * 
+	 * The file is read as a stream of YAML events, so the instructions and states
+	 * are converted while they are parsed and no tree of the whole document is
+	 * kept in memory.
+	 * 
 	 * @param traceFile      {@link MorionTraceFile} to write to
 	 * @param yamlStream     to write to @param traceFile
 	 * @param addressFactory to create {@link Address} objects
+	 * @param options        limits to apply while parsing
+	 * @param monitor        to report progress to and check for cancellation
 	 * @throws YamlConverterException if any exception occurs while converting
+	 * @throws CancelledException     if @param monitor has been cancelled
 	 */
-	public static void toTraceFile(MorionTraceFile traceFile, InputStream yamlStream, AddressFactory addressFactory)
-			throws YamlConverterException {
-		Map<String, Object> traceFileToConvert = loadTraceFile(traceFile, yamlStream);
-
-		addHooks(traceFile, traceFileToConvert, addressFactory);
-		addInstructions(traceFile, traceFileToConvert, addressFactory);
-		addEntryAddress(traceFile, traceFileToConvert, addressFactory);
-		addEntryMemory(traceFile, traceFileToConvert);
-		addEntryRegisters(traceFile, traceFileToConvert);
-		addLeaveAddress(traceFile, traceFileToConvert, addressFactory);
-		addLeaveMemory(traceFile, traceFileToConvert);
-		addLeaveRegisters(traceFile, traceFileToConvert);
+	public static void toTraceFile(MorionTraceFile traceFile, InputStream yamlStream, AddressFactory addressFactory,
+			TraceLoadingOptions options, TaskMonitor monitor) throws YamlConverterException, CancelledException {
+		loadTraceFile(traceFile, traceFile, yamlStream, addressFactory, options, monitor);
 	}
 
-	private static Map<String, Object> loadTraceFile(MorionInitTraceFile oldTraceFile, InputStream yamlStream)
-			throws YamlConverterException {
-		oldTraceFile.clear();
+	/**
+	 * Convert the information in the @param yamlFile to a
+	 * {@link MorionInitTraceFile}, like
+	 * {@link #toInitTraceFile(MorionInitTraceFile, InputStream, AddressFactory, TraceLoadingOptions, TaskMonitor)}.
+	 * 
+	 * If enabled in the @param options, the trace is read from its
+	 * {@link TraceCacheFile} if that is still valid, and the cache is written
+	 * after the YAML file has been parsed otherwise.
+	 * 
+	 * @param traceFile      {@link MorionInitTraceFile} to write to
+	 * @param yamlFile       to write to @param traceFile
+	 * @param addressFactory to create {@link Address} objects
+	 * @param options        limits to apply while parsing
+	 * @param monitor        to report progress to and check for cancellation
+	 * @throws YamlConverterException if any exception occurs while converting
+	 * @throws CancelledException     if @param monitor has been cancelled
+	 */
+	public static void toInitTraceFile(MorionInitTraceFile traceFile, File yamlFile, AddressFactory addressFactory,
+			TraceLoadingOptions options, TaskMonitor monitor) throws YamlConverterException, CancelledException {
+		loadTraceFile(traceFile, null, yamlFile, addressFactory, options, monitor);
+	}
+
+	/**
+	 * Convert the information in the @param yamlFile to a
+	 * {@link MorionTraceFile}, like
+	 * {@link #toTraceFile(MorionTraceFile, InputStream, AddressFactory, TraceLoadingOptions, TaskMonitor)}.
+	 * 
+	 * If enabled in the @param options, the trace is read from its
+	 * {@link TraceCacheFile} if that is still valid, and the cache is written
+	 * after the YAML file has been parsed otherwise.
+	 * 
+	 * @param traceFile      {@link MorionTraceFile} to write to
+	 * @param yamlFile       to write to @param traceFile
+	 * @param addressFactory to create {@link Address} objects
+	 * @param options        limits to apply while parsing
+	 * @param monitor        to report progress to and check for cancellation
+	 * @throws YamlConverterException if any exception occurs while converting
+	 * @throws CancelledException     if @param monitor has been cancelled
+	 */
+	public static void toTraceFile(MorionTraceFile traceFile, File yamlFile, AddressFactory addressFactory,
+			TraceLoadingOptions options, TaskMonitor monitor) throws YamlConverterException, CancelledException {
+		loadTraceFile(traceFile, traceFile, yamlFile, addressFactory, options, monitor);
+	}
+
+	private static void loadTraceFile(MorionInitTraceFile initTraceFile, MorionTraceFile traceFile, File yamlFile,
+			AddressFactory addressFactory, TraceLoadingOptions options, TaskMonitor monitor)
+			throws YamlConverterException, CancelledException {
+		TraceCacheFile cache = new TraceCacheFile(yamlFile);
+		if (options.isUseCache()) {
+			monitor.setMessage("Reading " + cache.getCacheFile().getName());
+			if (cache.read(initTraceFile, traceFile, addressFactory, monitor))
+				return;
+		}
+
 		try {
-			Map<String, Object> newTraceFile = new Yaml().load(yamlStream);
-			if (newTraceFile == null) {
-				throw new YamlConverterException("Empty file", "The loaded trace file is empty");
+			TraceCacheFile.YamlState yamlState = cache.readYamlState();
+			monitor.setMessage("Reading " + yamlFile.getName());
+			try (InputStream yamlStream = new FileInputStream(yamlFile)) {
+				loadTraceFile(initTraceFile, traceFile, yamlStream, addressFactory, options, monitor);
+			}
+			if (options.isUseCache()) {
+				monitor.setMessage("Writing " + cache.getCacheFile().getName());
+				cache.write(yamlState, initTraceFile, traceFile, addressFactory);
 			}
-			return newTraceFile;
-		} catch (ParserException e) {
-			throw new YamlConverterException("Parser exception", e.getMessage(), e);
+		} catch (IOException e) {
+			throw new YamlConverterException("Trace file not readable", e.getMessage(), e);
 		}
 	}
 
-	private static void addHooks(MorionInitTraceFile traceFile, Map<String, Object> traceFileToConvert,
-			AddressFactory addressFactory) throws YamlConverterException {
-		if (traceFileToConvert.containsKey(HOOKS)) {
-			Map<String, Map<String, List<Map<String, String>>>> hookMap = (Map<String, Map<String, List<Map<String, String>>>>) traceFileToConvert
-					.get(HOOKS);
-			Set<Hook> hooks = mapToHooks(hookMap, addressFactory);
-			traceFile.getHooks().updateAll(hooks);
+	/**
+	 * @param initTraceFile  to write hooks and the entry state to
+	 * @param traceFile      to write instructions and the leave state to, or
+	 *                       {@code null} if only an init trace file is loaded
+	 * @param yamlStream     to read from
+	 * @param addressFactory to create {@link Address} objects
+	 * @param options        limits to apply while parsing
+	 * @param monitor        to report the bytes read to
+	 */
+	private static void loadTraceFile(MorionInitTraceFile initTraceFile, MorionTraceFile traceFile,
+			InputStream yamlStream, AddressFactory addressFactory, TraceLoadingOptions options, TaskMonitor monitor)
+			throws YamlConverterException, CancelledException {
+		try (Batch b = initTraceFile.batch()) {
+			initTraceFile.clear();
+			try {
+				InputStream limitedStream = options.limit(new ProgressInputStream(yamlStream, monitor));
+				YamlEventReader reader = new YamlEventReader(new UnicodeReader(limitedStream), options);
+				if (!reader.startDocument() || !reader.startMapping()) {
+					throw new YamlConverterException("Empty file", "The loaded trace file is empty");
+				}
+				boolean hasInstructions = false;
+				while (reader.hasNextElement()) {
+					String key = String.valueOf(reader.readScalar());
+					if (key.equals(HOOKS)) {
+						addHooks(initTraceFile, reader, addressFactory);
+					} else if (key.equals(INSTRUCTIONS) && traceFile != null) {
+						addInstructions(traceFile, reader, addressFactory, monitor);
+						hasInstructions = true;
+					} else if (key.equals(STATES)) {
+						addStates(initTraceFile, traceFile, reader, addressFactory, monitor);
+					} else {
+						reader.skipValue();
+					}
+				}
+				reader.endCollection();
+				if (traceFile != null && !hasInstructions) {
+					throw new YamlConverterException("No instructions section", "Instructions section is missing");
+				}
+			} catch (YAMLException e) {
+				if (e.getCause() instanceof ProgressInputStream.CancelledIOException) {
+					throw new CancelledException();
+				}
+				if (e.getCause() instanceof SizeLimitedInputStream.LimitExceededException) {
+					String message = e.getCause().getMessage()
+							+ ". The limit can be changed in the Ghidrion tool options.";
+					throw new YamlConverterException("Trace file too large", message, e);
+				}
+				throw new YamlConverterException("Parser exception", e.getMessage(), e);
+			}
 		}
 	}
 
+	private static void addHooks(MorionInitTraceFile traceFile, YamlEventReader reader,
+			AddressFactory addressFactory) throws YamlConverterException {
+		Map<String, Map<String, List<Map<String, String>>>> hookMap = (Map<String, Map<String, List<Map<String, String>>>>) reader
+				.readValue();
+		Set<Hook> hooks = mapToHooks(hookMap, addressFactory);
+		traceFile.getHooks().updateAll(hooks);
+	}
+
 	private static Set<Hook> mapToHooks(Map<String, Map<String, List<Map<String, String>>>> hookMap,
 			AddressFactory addressFactory) throws YamlConverterException {
 		if (hookMap == null)
@@ -184,159 +296,180 @@ public class YamlToTraceFileConverter {
 		return mode.get();
 	}
 
-	private static void addInstructions(
-			MorionTraceFile traceFile,
-			Map<String, Object> traceFileToConvert,
-			AddressFactory addressFactory) throws YamlConverterException {
-		if (!(traceFileToConvert.containsKey(INSTRUCTIONS))) {
-			throw new YamlConverterException("No instructions section", "Instructions section is missing");
-		}
-
-		Set<Instruction> instructions = new HashSet<>();
-		List<List<String>> instructionList = (List<List<String>>) traceFileToConvert.get(INSTRUCTIONS);
-		if (instructionList == null) {
+	private static void addInstructions(MorionTraceFile traceFile, YamlEventReader reader,
+			AddressFactory addressFactory, TaskMonitor monitor) throws YamlConverterException, CancelledException {
+		if (!reader.startSequence()) {
 			throw new YamlConverterException("No instructions", "The instructions section is empty");
 		}
-		for (List<String> instruction : instructionList) {
-			if ((instruction.size() < 4) || (!isValidHex(instruction.get(0), FOUR_BYTE_LENGTH))) {
+
+		TraceStream instructions = new TraceStream();
+		long converted = 0;
+		while (reader.hasNextElement()) {
+			if (++converted % MONITOR_INTERVAL == 0) {
+				monitor.checkCanceled();
+				monitor.setMessage("Converted " + converted + " instructions");
+			}
+			List<String> instruction = toStringList(reader.readValue());
+			if ((instruction == null) || (instruction.size() < 4)
+					|| (!isValidHex(instruction.get(0), FOUR_BYTE_LENGTH))) {
 				throw new YamlConverterException("Invalid instruction", "An instruction is invalid");
 			}
-			Address address = addressFactory.getAddress(instruction.get(0));
-			String machineCode = instruction.get(1);
-			String assemblyCode = instruction.get(2);
-			String code = instruction.get(3);
-			instructions.add(new Instruction(address, machineCode, assemblyCode, code));
+			long tracedAddress = Long.parseLong(instruction.get(0).substring(2), 16);
+			Instruction traced = instructions.getInstructionAtOffset(tracedAddress); // reuses the first execution
+			if (traced == null) {
+				Address address = addressFactory.getAddress(instruction.get(0));
+				String machineCode = instruction.get(1);
+				String assemblyCode = instruction.get(2);
+				String code = instruction.get(3);
+				traced = new Instruction(address, machineCode, assemblyCode, code);
+			}
+			try {
+				instructions.append(traced);
+			} catch (IllegalStateException e) {
+				throw new YamlConverterException("Trace file too large", e.getMessage(), e);
+			}
 		}
+		reader.endCollection();
 		traceFile.getInstructions().replaceContent(instructions);
 	}
 
-	private static void addEntryAddress(MorionTraceFile traceFile, Map<String, Object> traceFileToConvert,
-			AddressFactory addressFactory) {
-		Map<String, Object> entryStateMap = getEntryStateMap(traceFileToConvert);
-		if (entryStateMap.containsKey(STATE_ADDRESS)) {
-			String address = (String) entryStateMap.get(STATE_ADDRESS);
-			if (address != null) {
-				traceFile.setEntryAddress(addressFactory.getAddress(address));
+	private static void addStates(MorionInitTraceFile initTraceFile, MorionTraceFile traceFile,
+			YamlEventReader reader, AddressFactory addressFactory, TaskMonitor monitor)
+			throws YamlConverterException, CancelledException {
+		if (!reader.startMapping())
+			return;
+		while (reader.hasNextElement()) {
+			String key = String.valueOf(reader.readScalar());
+			if (key.equals(ENTRY_STATE)) {
+				addEntryState(initTraceFile, traceFile, reader, addressFactory, monitor);
+			} else if (key.equals(LEAVE_STATE) && traceFile != null) {
+				addLeaveState(traceFile, reader, addressFactory, monitor);
+			} else {
+				reader.skipValue();
 			}
 		}
+		reader.endCollection();
 	}
 
-	private static void addEntryMemory(MorionInitTraceFile traceFile, Map<String, Object> traceFileToConvert)
-			throws YamlConverterException {
-		Map<String, Object> entryStateMap = getEntryStateMap(traceFileToConvert);
-		if (entryStateMap.containsKey(STATE_MEMORY)) {
-			Map<String, List<String>> entryMap = (Map<String, List<String>>) entryStateMap.get(STATE_MEMORY);
-			List<MemoryEntry> memoryEntries = mapToMemoryEntries(entryMap, ONE_BYTE_LENGTH);
-			checkMemoryStateAddresses(memoryEntries);
-			traceFile.getEntryMemory().updateAll(memoryEntries);
-		}
-	}
-
-	private static void addEntryRegisters(MorionInitTraceFile traceFile, Map<String, Object> traceFileToConvert)
-			throws YamlConverterException {
-		Map<String, Object> entryStateMap = getEntryStateMap(traceFileToConvert);
-		if (entryStateMap.containsKey(STATE_REGISTERS)) {
-			Map<String, List<String>> entryMap = (Map<String, List<String>>) entryStateMap.get(STATE_REGISTERS);
-			List<MemoryEntry> memoryEntries = mapToMemoryEntries(entryMap, FOUR_BYTE_LENGTH);
-			traceFile.getEntryRegisters().updateAll(memoryEntries);
-		}
-	}
-
-	private static void addLeaveAddress(MorionTraceFile traceFile, Map<String, Object> traceFileToConvert,
-			AddressFactory addressFactory) {
-		Map<String, Object> leaveStateMap = getLeaveStateMap(traceFileToConvert);
-		if (leaveStateMap.containsKey(STATE_ADDRESS)) {
-			String address = (String) leaveStateMap.get(STATE_ADDRESS);
-			if (address != null) {
-				traceFile.setLeaveAddress(addressFactory.getAddress(address));
+	private static void addEntryState(MorionInitTraceFile initTraceFile, MorionTraceFile traceFile,
+			YamlEventReader reader, AddressFactory addressFactory, TaskMonitor monitor)
+			throws YamlConverterException, CancelledException {
+		if (!reader.startMapping())
+			return;
+		while (reader.hasNextElement()) {
+			String key = String.valueOf(reader.readScalar());
+			if (key.equals(STATE_ADDRESS) && traceFile != null) {
+				String address = reader.readScalar();
+				if (address != null) {
+					traceFile.setEntryAddress(addressFactory.getAddress(address));
+				}
+			} else if (key.equals(STATE_MEMORY)) {
+				initTraceFile.getEntryMemory().updateAll(readMemory(reader, monitor));
+			} else if (key.equals(STATE_REGISTERS)) {
+				List<MemoryEntry> memoryEntries = readMemoryEntries(reader, FOUR_BYTE_LENGTH, monitor);
+				initTraceFile.getEntryRegisters().updateAll(memoryEntries);
+			} else {
+				reader.skipValue();
 			}
 		}
+		reader.endCollection();
 	}
 
-	private static void addLeaveMemory(MorionTraceFile traceFile, Map<String, Object> traceFileToConvert)
-			throws YamlConverterException {
-		Map<String, Object> leaveStateMap = getLeaveStateMap(traceFileToConvert);
-		if (leaveStateMap.containsKey(STATE_MEMORY)) {
-			Map<String, List<String>> entryMap = (Map<String, List<String>>) leaveStateMap.get(STATE_MEMORY);
-			List<MemoryEntry> memoryEntries = mapToMemoryEntries(entryMap, ONE_BYTE_LENGTH);
-			checkMemoryStateAddresses(memoryEntries);
-			traceFile.getLeaveMemory().updateAll(memoryEntries);
-		}
-	}
-
-	private static void addLeaveRegisters(MorionTraceFile traceFile, Map<String, Object> traceFileToConvert)
-			throws YamlConverterException {
-		Map<String, Object> leaveStateMap = getLeaveStateMap(traceFileToConvert);
-		if (leaveStateMap.containsKey(STATE_REGISTERS)) {
-			Map<String, List<String>> entryMap = (Map<String, List<String>>) leaveStateMap.get(STATE_REGISTERS);
-			List<MemoryEntry> memoryEntries = mapToMemoryEntries(entryMap, FOUR_BYTE_LENGTH);
-			traceFile.getLeaveRegisters().updateAll(memoryEntries);
+	private static void addLeaveState(MorionTraceFile traceFile, YamlEventReader reader,
+			AddressFactory addressFactory, TaskMonitor monitor) throws YamlConverterException, CancelledException {
+		if (!reader.startMapping())
+			return;
+		while (reader.hasNextElement()) {
+			String key = String.valueOf(reader.readScalar());
+			if (key.equals(STATE_ADDRESS)) {
+				String address = reader.readScalar();
+				if (address != null) {
+					traceFile.setLeaveAddress(addressFactory.getAddress(address));
+				}
+			} else if (key.equals(STATE_MEMORY)) {
+				traceFile.getLeaveMemory().updateAll(readMemory(reader, monitor));
+			} else if (key.equals(STATE_REGISTERS)) {
+				List<MemoryEntry> memoryEntries = readMemoryEntries(reader, FOUR_BYTE_LENGTH, monitor);
+				traceFile.getLeaveRegisters().updateAll(memoryEntries);
+			} else {
+				reader.skipValue();
+			}
 		}
+		reader.endCollection();
 	}
 
-	private static void checkMemoryStateAddresses(List<MemoryEntry> memoryEntries) throws YamlConverterException {
-		for (MemoryEntry entry : memoryEntries) {
+	private static MemoryStore readMemory(YamlEventReader reader, TaskMonitor monitor)
+			throws YamlConverterException, CancelledException {
+		MemoryStore memory = new MemoryStore();
+		if (!reader.startMapping())
+			return memory; // Ignore, if the mems section is empty
+
+		long converted = 0;
+		while (reader.hasNextElement()) {
+			if (++converted % MONITOR_INTERVAL == 0)
+				monitor.checkCanceled();
+			MemoryEntry entry = readMemoryEntry(reader, ONE_BYTE_LENGTH);
 			if (!isValidHex(entry.getName(), FOUR_BYTE_LENGTH)) {
 				String message = "Memory state address '" + entry.getName()
 						+ "' has to be a hexadecimal no longer than 4 byte";
 				throw new YamlConverterException("Illegal memory state address", message);
 			}
+			memory.put(MemoryStore.parseAddress(entry.getName()), MemoryStore.parseValue(entry.getValue()),
+					entry.isSymbolic());
 		}
+		reader.endCollection();
+		return memory;
 	}
 
-	private static List<MemoryEntry> mapToMemoryEntries(Map<String, List<String>> entryMap, int maxValueLength)
-			throws YamlConverterException {
-		if (entryMap == null)
-			return new ArrayList<>(); // Ignore, if the mems/regs section is empty
-
+	private static List<MemoryEntry> readMemoryEntries(YamlEventReader reader, int maxValueLength,
+			TaskMonitor monitor) throws YamlConverterException, CancelledException {
 		List<MemoryEntry> entries = new ArrayList<>();
-		for (String name : entryMap.keySet()) {
-			List<String> details = entryMap.get(name);
-			if (details == null || details.size() <= 0) {
-				String message = "State " + name + " has no value";
-				throw new YamlConverterException("Missing state value", message);
-			}
-			String value = details.get(0);
-			if (!isValidHex(value, maxValueLength)) {
-				String message = "State " + name + "'s value has to be a hexadecimal no longer than "
-						+ (maxValueLength - 2) / 2 + " byte";
-				throw new YamlConverterException("Illegal state value", message);
-			}
-			boolean symbolic = details.size() > 1
-					&& SYMBOLIC.equals(details.get(1));
-			entries.add(new MemoryEntry(name, value, symbolic));
+		if (!reader.startMapping())
+			return entries; // Ignore, if the regs section is empty
+
+		while (reader.hasNextElement()) {
+			if (entries.size() % MONITOR_INTERVAL == 0)
+				monitor.checkCanceled();
+			entries.add(readMemoryEntry(reader, maxValueLength));
 		}
+		reader.endCollection();
 		return entries;
 	}
 
-	private static Map<String, Object> getEntryStateMap(Map<String, Object> traceFileToConvert) {
-		Map<String, Object> entryStateMap = new HashMap<>();
-		Map<String, Map<String, Object>> statesMap = getStatesMap(traceFileToConvert);
-		if (statesMap.containsKey(ENTRY_STATE)) {
-			entryStateMap = statesMap.get(ENTRY_STATE);
+	private static MemoryEntry readMemoryEntry(YamlEventReader reader, int maxValueLength)
+			throws YamlConverterException {
+		String name = reader.readScalar();
+		List<String> details = toStringList(reader.readValue());
+		if (details == null || details.size() <= 0) {
+			String message = "State " + name + " has no value";
+			throw new YamlConverterException("Missing state value", message);
 		}
-		return entryStateMap;
-	}
-
-	private static Map<String, Object> getLeaveStateMap(Map<String, Object> traceFileToConvert) {
-		Map<String, Object> leaveStateMap = new HashMap<>();
-		Map<String, Map<String, Object>> statesMap = getStatesMap(traceFileToConvert);
-		if (statesMap.containsKey(LEAVE_STATE)) {
-			leaveStateMap = statesMap.get(LEAVE_STATE);
+		String value = details.get(0);
+		if (value == null || !isValidHex(value, maxValueLength)) {
+			String message = "State " + name + "'s value has to be a hexadecimal no longer than "
+					+ (maxValueLength - 2) / 2 + " byte";
+			throw new YamlConverterException("Illegal state value", message);
 		}
-		return leaveStateMap;
+		boolean symbolic = details.size() > 1
+				&& SYMBOLIC.equals(details.get(1));
+		return new MemoryEntry(name, value, symbolic);
 	}
 
-	private static Map<String, Map<String, Object>> getStatesMap(Map<String, Object> traceFileToConvert) {
-		Map<String, Map<String, Object>> statesMap = new HashMap<>();
-		if (traceFileToConvert.containsKey(STATES)) {
-			statesMap = (Map<String, Map<String, Object>>) traceFileToConvert.get(STATES);
-		}
-		return statesMap;
+	/**
+	 * @return the list with all elements converted to {@link String}s or
+	 *         {@code null} if @param value is not a list
+	 */
+	private static List<String> toStringList(Object value) {
+		if (!(value instanceof List))
+			return null;
+		List<String> list = new ArrayList<>();
+		for (Object element : (List<?>) value)
+			list.add(element == null ? null : element.toString());
+		return list;
 	}
 
 	private static boolean isValidHex(String text, int maxLength) {
-		return text.startsWith("0x") && text.substring(2).matches(HEX_REGEX) && text.length() <= maxLength;
+		return text != null && text.length() <= maxLength && HEX_PATTERN.matcher(text).matches();
 	}
 
 }
@@ -0,0 +1,145 @@
+package model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+public class MemoryStoreTest {
+	private static final int ADDRESSES = 300;
+	private static final int OPERATIONS = 5000;
+
+	/**
+	 * Expected byte of the per-byte oracle.
+	 */
+	private static class ExpectedByte {
+		private final byte value;
+		private final boolean symbolic;
+
+		private ExpectedByte(byte value, boolean symbolic) {
+			this.value = value;
+			this.symbolic = symbolic;
+		}
+	}
+
+	@Test
+	public void testFillWriteRemoveRangeAgainstTreeMap() {
+		Random random = new Random(5);
+		MemoryStore store = new MemoryStore();
+		TreeMap<Long, ExpectedByte> oracle = new TreeMap<>();
+		for (int i = 0; i < OPERATIONS; i++) {
+			long start = random.nextInt(ADDRESSES);
+			int length = 1 + random.nextInt(random.nextBoolean() ? 4 : 40);
+			long end = start + length - 1;
+			boolean symbolic = random.nextInt(4) == 0;
+			switch (random.nextInt(3)) {
+				case 0:
+					byte value = (byte) random.nextInt(3); // few values, so runs can merge
+					store.fill(start, end, value, symbolic);
+					for (long address = start; address <= end; address++)
+						oracle.put(address, new ExpectedByte(value, symbolic));
+					break;
+				case 1:
+					byte[] values = new byte[length];
+					for (int j = 0; j < length; j++)
+						values[j] = (byte) random.nextInt(3);
+					store.write(start, values, symbolic);
+					for (int j = 0; j < length; j++)
+						oracle.put(start + j, new ExpectedByte(values[j], symbolic));
+					break;
+				default:
+					store.removeRange(start, end);
+					oracle.subMap(start, true, end, true).clear();
+					break;
+			}
+			assertEquals(oracle.size(), store.getByteCount());
+		}
+		assertMatches(oracle, store);
+	}
+
+	@Test
+	public void testCopyRangeAndPutAll() {
+		Random random = new Random(9);
+		MemoryStore store = new MemoryStore();
+		TreeMap<Long, ExpectedByte> oracle = new TreeMap<>();
+		for (int i = 0; i < 200; i++) {
+			long start = random.nextInt(ADDRESSES);
+			byte[] values = new byte[1 + random.nextInt(20)];
+			random.nextBytes(values);
+			boolean symbolic = random.nextBoolean();
+			store.write(start, values, symbolic);
+			for (int j = 0; j < values.length; j++)
+				oracle.put(start + j, new ExpectedByte(values[j], symbolic));
+		}
+
+		MemoryStore copy = store.copyRange(50, 149);
+		assertMatches(new TreeMap<>(oracle.subMap(50L, true, 149L, true)), copy);
+
+		MemoryStore target = new MemoryStore();
+		target.fill(0, ADDRESSES * 2, (byte) 7, false);
+		TreeMap<Long, ExpectedByte> targetOracle = new TreeMap<>();
+		for (long address = 0; address <= ADDRESSES * 2; address++)
+			targetOracle.put(address, new ExpectedByte((byte) 7, false));
+		target.putAll(store);
+		targetOracle.putAll(oracle);
+		assertMatches(targetOracle, target);
+	}
+
+	@Test
+	public void testLargeFillStaysCompact() {
+		MemoryStore store = new MemoryStore();
+		store.fill(0x1000, 0x1000 + (1L << 32) - 1, (byte) 0, false);
+		assertEquals(1L << 32, store.getByteCount());
+		assertEquals(1, store.getRuns().size());
+		store.removeRange(0x2000, 0x2fff);
+		assertEquals(2, store.getRuns().size());
+		assertNull(store.getRun(0x2000));
+		assertNotNull(store.getRun(0x3000));
+	}
+
+	/**
+	 * Checks every byte, the runs and the entries of @param store against
+	 * @param oracle.
+	 */
+	private static void assertMatches(TreeMap<Long, ExpectedByte> oracle, MemoryStore store) {
+		assertEquals(oracle.size(), store.getByteCount());
+		for (long address = -1; address <= ADDRESSES * 2 + 1; address++) {
+			ExpectedByte expected = oracle.get(address);
+			MemoryStore.Run run = address < 0 ? null : store.getRun(address);
+			if (expected == null) {
+				assertNull("0x" + Long.toHexString(address), run);
+				continue;
+			}
+			assertNotNull("0x" + Long.toHexString(address), run);
+			assertEquals(expected.value, run.getValue(address));
+			assertEquals(expected.symbolic, run.isSymbolic());
+		}
+
+		long previousEnd = Long.MIN_VALUE;
+		for (MemoryStore.Run run : store.getRuns()) {
+			assertTrue("runs are ordered and don't overlap", previousEnd < run.getStart());
+			assertTrue(run.getLength() > 0);
+			previousEnd = run.getEnd();
+		}
+
+		List<MemoryEntry> expectedEntries = new ArrayList<>();
+		for (Map.Entry<Long, ExpectedByte> e : oracle.entrySet())
+			expectedEntries.add(new MemoryEntry(MemoryStore.formatAddress(e.getKey()),
+					MemoryStore.formatValue(e.getValue().value), e.getValue().symbolic));
+		List<MemoryEntry> entries = new ArrayList<>(store);
+		assertEquals(expectedEntries.size(), entries.size());
+		for (int i = 0; i < entries.size(); i++) {
+			assertEquals(expectedEntries.get(i).getName(), entries.get(i).getName());
+			assertEquals(expectedEntries.get(i).getValue(), entries.get(i).getValue());
+			assertEquals(expectedEntries.get(i).isSymbolic(), entries.get(i).isSymbolic());
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package util.collection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+public class NGramIndexTest {
+	private static final String ALPHABET = "abcx 0";
+
+	@Test
+	public void testSearchAgainstContains() {
+		Random random = new Random(11);
+		List<String> texts = new ArrayList<>();
+		for (int i = 0; i < 2000; i++)
+			texts.add(randomText(random, random.nextInt(20)));
+		NGramIndex index = new NGramIndex(texts);
+		assertEquals(texts.size(), index.size());
+
+		for (int i = 0; i < 2000; i++) {
+			String literal = random.nextInt(4) == 0
+					? randomText(random, random.nextInt(6))
+					: substring(random, texts.get(random.nextInt(texts.size())));
+			assertArrayEquals(literal, contains(texts, literal), index.search(literal));
+		}
+	}
+
+	@Test
+	public void testSearchWithoutMatches() {
+		NGramIndex index = new NGramIndex(List.of("mov rax, rbx", "push rbp", "ret"));
+		assertArrayEquals(new int[0], index.search("jmp"));
+		assertArrayEquals(new int[0], index.search("rbx, rax"));
+		assertArrayEquals(new int[] { 0, 1 }, index.search("rb"));
+		assertArrayEquals(new int[] { 0, 1, 2 }, index.search(""));
+	}
+
+	private static int[] contains(List<String> texts, String literal) {
+		return IntStream.range(0, texts.size())
+				.filter(id -> texts.get(id).contains(literal))
+				.toArray();
+	}
+
+	private static String substring(Random random, String text) {
+		int start = random.nextInt(text.length() + 1);
+		return text.substring(start, start + random.nextInt(text.length() - start + 1));
+	}
+
+	private static String randomText(Random random, int length) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < length; i++)
+			text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+		return text.toString();
+	}
+}
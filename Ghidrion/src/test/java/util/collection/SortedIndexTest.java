@@ -0,0 +1,87 @@
+package util.collection;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+public class SortedIndexTest {
+	private static final int OPERATIONS = 20000;
+	private static final int VALUES = 500;
+
+	@Test
+	public void testInsertRemoveRankAgainstTreeSet() {
+		Random random = new Random(42);
+		SortedIndex<Integer> index = new SortedIndex<>(Comparator.naturalOrder());
+		TreeSet<Integer> oracle = new TreeSet<>();
+		for (int i = 0; i < OPERATIONS; i++) {
+			int value = random.nextInt(VALUES);
+			int rank = oracle.headSet(value).size();
+			if (random.nextBoolean()) {
+				assertEquals(oracle.add(value) ? rank : -1, index.insert(value));
+			} else {
+				assertEquals(oracle.remove(value) ? rank : -1, index.removeElement(value));
+			}
+			assertEquals(oracle.size(), index.size());
+			assertEquals(rank, index.insertionIndex(value));
+			assertEquals(oracle.contains(value) ? rank : -1, index.indexOf(value));
+		}
+		assertEquals(new ArrayList<>(oracle), index);
+	}
+
+	@Test
+	public void testGetByIndex() {
+		Random random = new Random(7);
+		SortedIndex<Integer> index = new SortedIndex<>(Comparator.naturalOrder());
+		TreeSet<Integer> oracle = new TreeSet<>();
+		for (int i = 0; i < 2000; i++) {
+			int value = random.nextInt(VALUES);
+			oracle.add(value);
+			index.insert(value);
+		}
+		List<Integer> expected = new ArrayList<>(oracle);
+		for (int i = 0; i < expected.size(); i++)
+			assertEquals(expected.get(i), index.get(i));
+	}
+
+	@Test
+	public void testSetAllKeepsDistinctSortedElements() {
+		Random random = new Random(3);
+		List<Integer> elements = new ArrayList<>();
+		for (int i = 0; i < 5000; i++)
+			elements.add(random.nextInt(VALUES));
+		SortedIndex<Integer> index = new SortedIndex<>(Comparator.naturalOrder());
+		index.insert(-1);
+		index.setAll(elements);
+		TreeSet<Integer> oracle = new TreeSet<>(elements);
+		assertEquals(new ArrayList<>(oracle), index);
+
+		// the rebuilt tree still supports updates
+		for (int i = 0; i < OPERATIONS / 10; i++) {
+			int value = random.nextInt(VALUES * 2);
+			int rank = oracle.headSet(value).size();
+			if (random.nextBoolean())
+				assertEquals(oracle.add(value) ? rank : -1, index.insert(value));
+			else
+				assertEquals(oracle.remove(value) ? rank : -1, index.removeElement(value));
+		}
+		assertEquals(new ArrayList<>(oracle), index);
+	}
+
+	@Test
+	public void testReplaceKeepsPosition() {
+		SortedIndex<String> index = new SortedIndex<>(String.CASE_INSENSITIVE_ORDER);
+		index.insert("a");
+		index.insert("B");
+		index.insert("c");
+		assertEquals(1, index.replace("b"));
+		assertEquals("b", index.get(1));
+		assertEquals(-1, index.replace("d"));
+		assertEquals(3, index.size());
+	}
+}
@@ -0,0 +1,102 @@
+package util.observable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class ObservableCollectionTest {
+
+    @Test
+    public void testAddThenRemoveWithinBatchIsNotReported() {
+        ObservableSet<Integer> set = new ObservableSet<>();
+        for (int i = 0; i < 10; i++) // larger than the changes, which would be reported as replacedAll
+            set.add(i + 10);
+        set.add(1);
+        List<CollectionChange<Integer>> changes = new ArrayList<>();
+        set.addChangeObserver(changes::add);
+
+        set.batch(() -> {
+            set.add(2);
+            set.remove(2);
+        });
+        assertTrue(changes.isEmpty());
+
+        set.batch(() -> {
+            set.add(3);
+            set.add(4);
+            set.remove(3);
+            set.remove(1);
+        });
+        assertEquals(1, changes.size());
+        assertEquals(Set.of(4), new HashSet<>(changes.get(0).getAdded()));
+        assertEquals(Set.of(1), new HashSet<>(changes.get(0).getRemoved()));
+    }
+
+    @Test
+    public void testRemoveThenAddWithinBatchIsReportedAsReplacement() {
+        ObservableSet<Integer> set = new ObservableSet<>();
+        set.add(1);
+        set.add(2);
+        set.add(3);
+        List<CollectionChange<Integer>> changes = new ArrayList<>();
+        set.addChangeObserver(changes::add);
+
+        set.batch(() -> {
+            set.remove(1);
+            set.add(1);
+        });
+        assertEquals(1, changes.size());
+        assertEquals(List.of(1), new ArrayList<>(changes.get(0).getAdded()));
+        assertEquals(List.of(1), new ArrayList<>(changes.get(0).getRemoved()));
+    }
+
+    @Test
+    public void testNestedBatchesNotifyOnce() {
+        ObservableSet<Integer> set = new ObservableSet<>();
+        List<Set<Integer>> values = new ArrayList<>();
+        List<CollectionChange<Integer>> changes = new ArrayList<>();
+        set.addObserver(s -> values.add(new HashSet<>(s)));
+        set.addChangeObserver(changes::add);
+
+        try (Observable.Batch outer = set.batch()) {
+            set.add(1);
+            set.batch(() -> set.add(2));
+            assertTrue(values.isEmpty());
+        }
+        assertEquals(List.of(Set.of(1, 2)), values);
+        assertEquals(1, changes.size());
+        assertEquals(Set.of(1, 2), new HashSet<>(changes.get(0).getAdded()));
+    }
+
+    @Test
+    public void testBatchAllClosesEveryBatchIfAnObserverThrows() {
+        ObservableSet<Integer> first = new ObservableSet<>();
+        ObservableSet<Integer> second = new ObservableSet<>();
+        first.addChangeObserver(change -> {
+            throw new IllegalStateException("observer failed");
+        });
+        List<CollectionChange<Integer>> changes = new ArrayList<>();
+        second.addChangeObserver(changes::add);
+
+        boolean thrown = false;
+        try (Observable.Batch b = Observable.batchAll(List.of(first, second))) {
+            first.add(1);
+            second.add(2);
+        } catch (IllegalStateException e) {
+            thrown = true;
+        }
+        assertTrue(thrown);
+        assertEquals(1, changes.size());
+
+        second.add(3); // not swallowed by a batch left open
+        assertEquals(2, changes.size());
+        assertFalse(second.isBatching());
+    }
+}